@@ -0,0 +1,126 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac AncestorIndex.java
+ *  Execution:     none
+ *
+ *  Distance labels of a digraph: every vertex keeps all vertices
+ *  reachable from it with their distances, sorted by vertex. The
+ *  shortest ancestral path of two vertices is found by merging their
+ *  labels, without traversing the digraph. Labels are short in shallow
+ *  digraphs like WordNet hypernyms; a deep digraph needs up to V^2 of
+ *  them.
+ *
+ *----------------------------------------------------------------*/
+
+import java.util.Arrays;
+
+public final class AncestorIndex {
+
+    private static final int MAX_LABELS = (Integer.MAX_VALUE - 8) / 2;
+    private final int[] labelOffsets; // Labels of v are labels[2 * labelOffsets[v]..2 * labelOffsets[v + 1])
+    private final int[] labels; // Pairs of an ancestor and its distance
+
+    AncestorIndex(int[] adjOffsets, int[] adjacent) {
+        var size = adjOffsets.length - 1;
+        var marked = new int[size]; // Vertex whose breadth-first search reached the vertex, plus one
+        var distTo = new int[size];
+        var queue = new int[size];
+
+        this.labelOffsets = new int[size + 1];
+        var labels = new int[Math.max(16, 4 * size)];
+        var count = 0;
+        for (var v = 0; v < size; v++) {
+            this.labelOffsets[v] = count;
+
+            // Reach every ancestor of v
+            var head = 0;
+            var tail = 0;
+            queue[tail++] = v;
+            marked[v] = v + 1;
+            distTo[v] = 0;
+            while (head < tail) {
+                var x = queue[head++];
+                for (var i = adjOffsets[x]; i < adjOffsets[x + 1]; i++) {
+                    var y = adjacent[i];
+                    if (marked[y] != v + 1) {
+                        marked[y] = v + 1;
+                        distTo[y] = distTo[x] + 1;
+                        queue[tail++] = y;
+                    }
+                }
+            }
+
+            if ((long) count + tail > MAX_LABELS) {
+                throw new IllegalArgumentException("Digraph is too deep to be indexed");
+            }
+            if (2 * (count + tail) > labels.length) {
+                labels = Arrays.copyOf(labels, (int) Math.min(Math.max(2L * labels.length, 2L * (count + tail)),
+                        2L * MAX_LABELS));
+            }
+
+            Arrays.sort(queue, 0, tail);
+            for (var i = 0; i < tail; i++) {
+                labels[2 * count] = queue[i];
+                labels[2 * count + 1] = distTo[queue[i]];
+                count++;
+            }
+        }
+
+        this.labelOffsets[size] = count;
+        this.labels = Arrays.copyOf(labels, 2 * count);
+    }
+
+    /**
+     * Number of indexed vertices
+     */
+    public int vertices() {
+        return this.labelOffsets.length - 1;
+    }
+
+    /**
+     * Number of labels of all vertices
+     */
+    public int size() {
+        return this.labelOffsets[this.labelOffsets.length - 1];
+    }
+
+    /**
+     * Common ancestor and length of the shortest ancestral path between any of the first vCount vertices
+     * of v and any of the first wCount vertices of w
+     */
+    int[] getCommonAncestorAndMinDist(int[] v, int vCount, int[] w, int wCount) {
+        var commonAncestor = -1;
+        var minDist = -1;
+        for (var i = 0; i < vCount; i++) {
+            for (var j = 0; j < wCount; j++) {
+                // Both labels are sorted by ancestor, so common ancestors are found by a single merge
+                var vi = 2 * this.labelOffsets[v[i]];
+                var vEnd = 2 * this.labelOffsets[v[i] + 1];
+                var wj = 2 * this.labelOffsets[w[j]];
+                var wEnd = 2 * this.labelOffsets[w[j] + 1];
+                while (vi < vEnd && wj < wEnd) {
+                    var vAncestor = this.labels[vi];
+                    var wAncestor = this.labels[wj];
+                    if (vAncestor < wAncestor) {
+                        vi += 2;
+                    } else if (vAncestor > wAncestor) {
+                        wj += 2;
+                    } else {
+                        var dist = this.labels[vi + 1] + this.labels[wj + 1];
+                        if (minDist == -1 || dist < minDist) {
+                            minDist = dist;
+                            commonAncestor = vAncestor;
+                        }
+                        vi += 2;
+                        wj += 2;
+                    }
+                }
+            }
+        }
+
+        return new int[]{commonAncestor, minDist};
+    }
+}
@@ -0,0 +1,61 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac AncestralPath.java
+ *  Execution:     none
+ *
+ *  Shortest ancestral path found by a single SAP query
+ *
+ *----------------------------------------------------------------*/
+
+import java.util.Arrays;
+
+public final class AncestralPath {
+
+    private final int ancestor;
+    private final int length;
+    private final int[] path;
+
+    AncestralPath(int ancestor, int length, int[] path) {
+        this.ancestor = ancestor;
+        this.length = length;
+        this.path = path;
+    }
+
+    /**
+     * A common ancestor that participates in the shortest ancestral path; -1 if no such path
+     */
+    public int ancestor() {
+        return this.ancestor;
+    }
+
+    /**
+     * Length of the shortest ancestral path; -1 if no such path
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Is there an ancestral path at all?
+     */
+    public boolean exists() {
+        return this.ancestor != -1;
+    }
+
+    /**
+     * Vertices from a vertex of v up to the ancestor and down to a vertex of w; null if the path
+     * was not requested or there is no such path
+     */
+    public int[] path() {
+        return this.path == null ? null : this.path.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("length = %d, ancestor = %d, path = %s", this.length, this.ancestor,
+                this.path == null ? "-" : Arrays.toString(this.path));
+    }
+}
@@ -0,0 +1,41 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac NounRelation.java
+ *  Execution:     none
+ *
+ *  Distance between two WordNet nouns and their common ancestor
+ *
+ *----------------------------------------------------------------*/
+
+public final class NounRelation {
+
+    private final int distance;
+    private final String ancestor;
+
+    NounRelation(int distance, String ancestor) {
+        this.distance = distance;
+        this.ancestor = ancestor;
+    }
+
+    /**
+     * Distance between the nouns, the same as WordNet.distance
+     */
+    public int distance() {
+        return this.distance;
+    }
+
+    /**
+     * Synset of the common ancestor of the nouns, the same as WordNet.sap
+     */
+    public String ancestor() {
+        return this.ancestor;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("distance = %d, ancestor = %s", this.distance, this.ancestor);
+    }
+}
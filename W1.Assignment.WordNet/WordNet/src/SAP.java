@@ -1,7 +1,7 @@
 /*----------------------------------------------------------------
  *  Author:        Pylyp Lebediev
  *  Written:       24/03/2023
- *  Last updated:  28/03/2023
+ *  Last updated:  18/10/2026
  *
  *  Compilation:   javac SAP.java
  *  Execution:     java SAP
@@ -12,32 +12,85 @@
 
 import edu.princeton.cs.algs4.Digraph;
 import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.Queue;
 import edu.princeton.cs.algs4.StdOut;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 
 public class SAP {
 
-    private final Digraph G;
+    private final int[] adjOffsets; // Adjacent vertices of v are adjacent[adjOffsets[v]..adjOffsets[v + 1])
+    private final int[] adjacent;
+    private final ThreadLocal<Scratch> scratch; // Buffers reused by queries of the same thread
+    private final SapCache cache;
+    private final AncestorIndex index;
 
     /**
      * Constructor takes a digraph (not necessarily a DAG)
      */
     public SAP(Digraph G) {
+        this(G, 0);
+    }
+
+    /**
+     * Constructor takes a digraph (not necessarily a DAG) and the number of shortest ancestral paths
+     * to cache; nothing is cached if it is 0
+     */
+    public SAP(Digraph G, int cacheCapacity) {
+        this(G, cacheCapacity, false);
+    }
+
+    /**
+     * Constructor takes a digraph (not necessarily a DAG), the number of shortest ancestral paths to cache
+     * and whether distances to all ancestors of every vertex are precomputed, so queries do not traverse
+     * the digraph; an indexed digraph answers queries faster than a cache, so it can't have one
+     */
+    public SAP(Digraph G, int cacheCapacity, boolean isIndexed) {
         if (G == null) {
             throw new IllegalArgumentException("Digraph is null");
         }
+        if (cacheCapacity < 0) {
+            throw new IllegalArgumentException("Cache capacity is invalid");
+        }
+        if (cacheCapacity > 0 && isIndexed) {
+            throw new IllegalArgumentException("Indexed digraph is not cached");
+        }
 
-        this.G = new Digraph(G);
+        // Adjacency lists are copied into flat arrays, so traversals neither box vertices nor create iterators
+        var size = G.V();
+        this.adjOffsets = new int[size + 1];
+        this.adjacent = new int[G.E()];
+        var index = 0;
+        for (var v = 0; v < size; v++) {
+            this.adjOffsets[v] = index;
+            for (var w : G.adj(v)) {
+                this.adjacent[index++] = w;
+            }
+        }
+        this.adjOffsets[size] = index;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(size));
+        this.cache = cacheCapacity == 0 ? null : new SapCache(cacheCapacity);
+        this.index = isIndexed ? new AncestorIndex(this.adjOffsets, this.adjacent) : null;
+    }
+
+    /**
+     * Cache of shortest ancestral paths with its counters; null if paths are not cached
+     */
+    public SapCache cache() {
+        return this.cache;
+    }
+
+    /**
+     * Precomputed distances to ancestors; null if the digraph is not indexed
+     */
+    public AncestorIndex index() {
+        return this.index;
     }
 
     /**
      * Length of shortest ancestral path between v and w; -1 if no such path
      */
     public int length(int v, int w) {
-        var result = getCommonAncestorAndMinDist(convertToArrayList(v), convertToArrayList(w));
+        var result = getCommonAncestorAndMinDist(prepare(v, w));
         return result[1];
     }
 
@@ -45,7 +98,7 @@ public class SAP {
      * A common ancestor of v and w that participates in a shortest ancestral path; -1 if no such path
      */
     public int ancestor(int v, int w) {
-        var result = getCommonAncestorAndMinDist(convertToArrayList(v), convertToArrayList(w));
+        var result = getCommonAncestorAndMinDist(prepare(v, w));
         return result[0];
     }
 
@@ -53,7 +106,7 @@ public class SAP {
      * Length of shortest ancestral path between any vertex in v and any vertex in w; -1 if no such path
      */
     public int length(Iterable<Integer> v, Iterable<Integer> w) {
-        var result = getCommonAncestorAndMinDist(convertIterable(v), convertIterable(w));
+        var result = getCommonAncestorAndMinDist(prepare(v, w));
         return result[1];
     }
 
@@ -61,98 +114,246 @@ public class SAP {
      * A common ancestor that participates in shortest ancestral path; -1 if no such path
      */
     public int ancestor(Iterable<Integer> v, Iterable<Integer> w) {
-        var result = getCommonAncestorAndMinDist(convertIterable(v), convertIterable(w));
+        var result = getCommonAncestorAndMinDist(prepare(v, w));
         return result[0];
     }
 
-    private int[] getCommonAncestorAndMinDist(ArrayList<Integer> v, ArrayList<Integer> w) {
-        // Run breadth-first paths
-        var vBsp = bsp(v);
-        var wBsp = bsp(w);
+    /**
+     * Shortest ancestral path between v and w with its length and common ancestor found at once
+     */
+    public AncestralPath query(int v, int w) {
+        return query(v, w, false);
+    }
+
+    /**
+     * Shortest ancestral path between v and w, with its vertices if includePath is true
+     */
+    public AncestralPath query(int v, int w, boolean includePath) {
+        return getAncestralPath(prepare(v, w), includePath);
+    }
 
-        var paths = new HashSet<Integer>();
-        paths.addAll(vBsp.path);
-        paths.addAll(wBsp.path);
+    /**
+     * Shortest ancestral path between any vertex in v and any vertex in w with its length and common
+     * ancestor found at once
+     */
+    public AncestralPath query(Iterable<Integer> v, Iterable<Integer> w) {
+        return query(v, w, false);
+    }
 
-        // Get common ancestor and shortest distance
-        var commonAncestor = -1;
-        var minDist = -1;
-        for (var i : paths) {
-            if (wBsp.marked[i] && vBsp.marked[i]) {
-                var dist = wBsp.distTo[i] + vBsp.distTo[i];
-                if (minDist == -1 || dist < minDist) {
-                    minDist = dist;
-                    commonAncestor = i;
-                }
-            }
+    /**
+     * Shortest ancestral path between any vertex in v and any vertex in w, with its vertices if includePath
+     * is true
+     */
+    public AncestralPath query(Iterable<Integer> v, Iterable<Integer> w, boolean includePath) {
+        return getAncestralPath(prepare(v, w), includePath);
+    }
+
+    private AncestralPath getAncestralPath(Scratch scratch, boolean includePath) {
+        // Vertices of the path are known only right after a search, so such queries skip the cache and the index
+        var result = includePath ? findShortestAncestralPath(scratch) : getCommonAncestorAndMinDist(scratch);
+        var ancestor = result[0];
+        var length = result[1];
+        if (!includePath || ancestor == -1) {
+            return new AncestralPath(ancestor, length, null);
         }
 
-        return new int[]{commonAncestor, minDist};
+        // Walk from the ancestor back to a source of v, then back to a source of w
+        var path = new int[length + 1];
+        var vDist = scratch.vBsp.distTo[ancestor];
+        var x = ancestor;
+        for (var i = vDist; i >= 0; i--) {
+            path[i] = x;
+            x = scratch.vBsp.edgeTo[x];
+        }
+        x = ancestor;
+        for (var i = vDist; i <= length; i++) {
+            path[i] = x;
+            x = scratch.wBsp.edgeTo[x];
+        }
+
+        return new AncestralPath(ancestor, length, path);
     }
 
-    private Bsp bsp(ArrayList<Integer> s) {
-        var size = this.G.V();
-        var distTo = new int[size];
-        var marked = new boolean[size];
-        var path = new ArrayList<Integer>();
+    private int[] getCommonAncestorAndMinDist(Scratch scratch) {
+        // Sources are the only vertices in the queues before the search
+        if (this.index != null) {
+            return this.index.getCommonAncestorAndMinDist(scratch.vBsp.queue, scratch.vBsp.tail,
+                    scratch.wBsp.queue, scratch.wBsp.tail);
+        }
+        if (this.cache == null) {
+            return findShortestAncestralPath(scratch);
+        }
 
-        var queue = new Queue<Integer>();
-        for (var si : s) {
-            queue.enqueue(si);
-            marked[si] = true;
-            path.add(si);
+        var key = new SapCache.Key(Arrays.copyOf(scratch.vBsp.queue, scratch.vBsp.tail),
+                Arrays.copyOf(scratch.wBsp.queue, scratch.wBsp.tail));
+        var result = this.cache.get(key);
+        if (result == null) {
+            result = findShortestAncestralPath(scratch);
+            this.cache.put(key, result);
         }
 
-        while (!queue.isEmpty()) {
-            var v = queue.dequeue();
-            for (var w : this.G.adj(v)) {
-                if (!marked[w]) {
-                    queue.enqueue(w);
-                    distTo[w] = distTo[v] + 1;
-                    marked[w] = true;
-                    path.add(w);
+        return result;
+    }
+
+    private int[] findShortestAncestralPath(Scratch scratch) {
+        // Breadth-first paths from both sides are expanded level by level, the smaller frontier first
+        var vBsp = scratch.vBsp;
+        var wBsp = scratch.wBsp;
+
+        // A source shared by both sides is its own common ancestor
+        for (var i = 0; i < vBsp.tail; i++) {
+            if (wBsp.isMarked(vBsp.queue[i])) {
+                return new int[]{vBsp.queue[i], 0};
+            }
+        }
+
+        var commonAncestor = -1;
+        var minDist = -1;
+        while (true) {
+            // Vertices of the next level can't be on a shorter path once their distance reaches the shortest one
+            var vActive = vBsp.size() > 0 && (minDist == -1 || vBsp.level + 1 < minDist);
+            var wActive = wBsp.size() > 0 && (minDist == -1 || wBsp.level + 1 < minDist);
+            if (!vActive && !wActive) {
+                break;
+            }
+
+            var bsp = vActive && (!wActive || vBsp.size() <= wBsp.size()) ? vBsp : wBsp;
+            var other = bsp == vBsp ? wBsp : vBsp;
+            for (var levelEnd = bsp.tail; bsp.head < levelEnd; bsp.head++) {
+                var x = bsp.queue[bsp.head];
+                for (var i = this.adjOffsets[x]; i < this.adjOffsets[x + 1]; i++) {
+                    var y = this.adjacent[i];
+                    if (bsp.isMarked(y)) {
+                        continue;
+                    }
+
+                    bsp.mark(y, x, bsp.distTo[x] + 1);
+                    if (other.isMarked(y)) {
+                        var dist = bsp.distTo[y] + other.distTo[y];
+                        if (minDist == -1 || dist < minDist) {
+                            minDist = dist;
+                            commonAncestor = y;
+                        }
+                    }
                 }
             }
+            bsp.level++;
         }
 
-        return new Bsp(distTo, marked, path);
+        return new int[]{commonAncestor, minDist};
+    }
+
+    private Scratch prepare(int v, int w) {
+        var scratch = this.scratch.get();
+        scratch.start();
+        scratch.vBsp.mark(validateVertex(v), v, 0);
+        scratch.wBsp.mark(validateVertex(w), w, 0);
+        return scratch;
     }
 
-    private ArrayList<Integer> convertIterable(Iterable<Integer> vi) {
-        if (vi == null) {
+    private Scratch prepare(Iterable<Integer> v, Iterable<Integer> w) {
+        if (v == null || w == null) {
             throw new IllegalArgumentException();
         }
 
-        var arrayList = new ArrayList<Integer>();
-        for (var v : vi) {
-            if (v == null || v < 0 || v > this.G.V() - 1) {
+        var scratch = this.scratch.get();
+        scratch.start();
+        for (var vi : v) {
+            if (vi == null) {
                 throw new IllegalArgumentException();
             }
-            arrayList.add(v);
+            scratch.vBsp.mark(validateVertex(vi), vi, 0);
         }
-        return arrayList;
+        for (var wi : w) {
+            if (wi == null) {
+                throw new IllegalArgumentException();
+            }
+            scratch.wBsp.mark(validateVertex(wi), wi, 0);
+        }
+        return scratch;
     }
 
-    private ArrayList<Integer> convertToArrayList(int v) {
-        if (v < 0 || v > this.G.V() - 1) {
+    private int validateVertex(int v) {
+        if (v < 0 || v > this.adjOffsets.length - 2) {
             throw new IllegalArgumentException();
         }
 
-        var arrayList = new ArrayList<Integer>();
-        arrayList.add(v);
-        return arrayList;
+        return v;
     }
 
-    private class Bsp {
+    /**
+     * Breadth-first paths from a set of sources, expanded one level at a time. Vertices are marked with
+     * the generation of the query, so buffers are reused without clearing them.
+     */
+    private static class Bsp {
 
         private final int[] distTo;
-        private final boolean[] marked;
-        private final ArrayList<Integer> path;
+        private final int[] edgeTo; // Previous vertex on the path from a source; a source refers to itself
+        private final int[] marked; // Generation of the query which reached the vertex
+        private final int[] queue; // Reached vertices in order of distance; every vertex is reached once
+        private int head; // First vertex of the level to expand
+        private int tail;
+        private int level; // Distance of vertices from head to tail
+        private int generation;
+
+        Bsp(int size) {
+            this.distTo = new int[size];
+            this.edgeTo = new int[size];
+            this.marked = new int[size];
+            this.queue = new int[size];
+        }
+
+        void reset(int generation) {
+            this.head = 0;
+            this.tail = 0;
+            this.level = 0;
+            this.generation = generation;
+        }
+
+        boolean isMarked(int v) {
+            return this.marked[v] == this.generation;
+        }
+
+        void mark(int v, int from, int dist) {
+            if (isMarked(v)) {
+                return;
+            }
+
+            this.marked[v] = this.generation;
+            this.edgeTo[v] = from;
+            this.distTo[v] = dist;
+            this.queue[this.tail++] = v;
+        }
+
+        int size() {
+            return this.tail - this.head;
+        }
+    }
+
+    /**
+     * Buffers of a single thread
+     */
+    private static class Scratch {
+
+        private final Bsp vBsp;
+        private final Bsp wBsp;
+        private int generation;
+
+        Scratch(int size) {
+            this.vBsp = new Bsp(size);
+            this.wBsp = new Bsp(size);
+        }
+
+        void start() {
+            // Marks of old queries are cleared only once the generation wraps around
+            if (++this.generation == 0) {
+                Arrays.fill(this.vBsp.marked, 0);
+                Arrays.fill(this.wBsp.marked, 0);
+                this.generation = 1;
+            }
 
-        Bsp(int[] distTo, boolean[] marked, ArrayList<Integer> path) {
-            this.distTo = distTo;
-            this.marked = marked;
-            this.path = path;
+            this.vBsp.reset(this.generation);
+            this.wBsp.reset(this.generation);
         }
     }
 
@@ -165,5 +366,6 @@ public class SAP {
         int length = sap.length(v, w);
         int ancestor = sap.ancestor(v, w);
         StdOut.printf("length = %d, ancestor = %d\n", length, ancestor);
+        StdOut.println(sap.query(v, w, true));
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac SapCache.java
+ *  Execution:     none
+ *
+ *  Bounded thread-safe cache of shortest ancestral paths. Entries are
+ *  spread over stripes by hash; every stripe is a least recently used
+ *  map guarded by its own lock.
+ *
+ *----------------------------------------------------------------*/
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SapCache {
+
+    private static final int MAX_STRIPES = 16;
+    private final int capacity;
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    SapCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity is invalid");
+        }
+
+        this.capacity = capacity;
+        var stripes = Integer.highestOneBit(Math.min(capacity, MAX_STRIPES));
+        this.stripes = new Stripe[stripes];
+        for (var i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(capacity / stripes + (i < capacity % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Maximum number of cached paths
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Number of cached paths
+     */
+    public int size() {
+        var size = 0;
+        for (var stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Number of queries answered from the cache
+     */
+    public long hits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Number of queries which had to search the digraph
+     */
+    public long misses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Number of paths dropped to make room for new ones
+     */
+    public long evictions() {
+        return this.evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size = %d/%d, hits = %d, misses = %d, evictions = %d", size(), this.capacity,
+                hits(), misses(), evictions());
+    }
+
+    int[] get(Key key) {
+        var stripe = getStripe(key);
+        int[] result;
+        synchronized (stripe) {
+            result = stripe.get(key);
+        }
+
+        if (result == null) {
+            this.misses.increment();
+        } else {
+            this.hits.increment();
+        }
+        return result;
+    }
+
+    void put(Key key, int[] result) {
+        var stripe = getStripe(key);
+        synchronized (stripe) {
+            stripe.put(key, result);
+        }
+    }
+
+    private Stripe getStripe(Key key) {
+        var hash = key.hash ^ (key.hash >>> 16);
+        return this.stripes[hash & (this.stripes.length - 1)];
+    }
+
+    /**
+     * Sources of both sides, sorted; the shortest ancestral path does not depend on the order of sides,
+     * so the smaller side always goes first
+     */
+    static final class Key {
+
+        private final int[] v;
+        private final int[] w;
+        private final int hash;
+
+        Key(int[] v, int[] w) {
+            Arrays.sort(v);
+            Arrays.sort(w);
+            var isSwapped = Arrays.compare(v, w) > 0;
+            this.v = isSwapped ? w : v;
+            this.w = isSwapped ? v : w;
+            this.hash = 31 * Arrays.hashCode(this.v) + Arrays.hashCode(this.w);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            var key = (Key) o;
+            return this.hash == key.hash && Arrays.equals(this.v, key.v) && Arrays.equals(this.w, key.w);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /**
+     * Least recently used paths of one stripe
+     */
+    private class Stripe extends LinkedHashMap<Key, int[]> {
+
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+            if (size() <= this.capacity) {
+                return false;
+            }
+
+            evictions.increment();
+            return true;
+        }
+    }
+}
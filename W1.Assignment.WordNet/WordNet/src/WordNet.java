@@ -1,7 +1,7 @@
 /*----------------------------------------------------------------
  *  Author:        Pylyp Lebediev
  *  Written:       23/03/2023
- *  Last updated:  28/03/2023
+ *  Last updated:  18/10/2026
  *
  *  Compilation:   javac WordNet.java
  *  Execution:     java WordNet
@@ -27,6 +27,24 @@ public class WordNet {
      * Constructor takes the name of the two input files
      */
     public WordNet(String synsets, String hypernyms) {
+        this(synsets, hypernyms, 0);
+    }
+
+    /**
+     * Constructor takes the name of the two input files and the number of noun relations to cache;
+     * nothing is cached if it is 0
+     */
+    public WordNet(String synsets, String hypernyms, int cacheCapacity) {
+        this(synsets, hypernyms, cacheCapacity, false);
+    }
+
+    /**
+     * Constructor takes the name of the two input files, the number of noun relations to cache and
+     * whether distances to all hypernyms of every synset are precomputed; the index takes more memory
+     * and startup time, but its queries do not traverse the hypernyms, so the cache capacity has to be 0
+     * if the index is used
+     */
+    public WordNet(String synsets, String hypernyms, int cacheCapacity, boolean isIndexed) {
         if (synsets == null) {
             throw new IllegalArgumentException("synsets file is not specified");
         }
@@ -81,7 +99,14 @@ public class WordNet {
             throw new IllegalArgumentException("The input does not correspond to a rooted DAG.");
         }
 
-        this.sap = new SAP(digraph);
+        this.sap = new SAP(digraph, cacheCapacity, isIndexed);
+    }
+
+    /**
+     * Cache of noun relations with its counters; null if relations are not cached
+     */
+    public SapCache cache() {
+        return this.sap.cache();
     }
 
     /**
@@ -134,6 +159,22 @@ public class WordNet {
         return nouns[commonAncestorId];
     }
 
+    /**
+     * Distance between nounA and nounB and the synset of their common ancestor found at once
+     */
+    public NounRelation relation(String nounA, String nounB) {
+        if (nounA == null) {
+            throw new IllegalArgumentException("Noun A is null");
+        }
+        if (nounB == null) {
+            throw new IllegalArgumentException("Noun B is null");
+        }
+
+        var ids = getNounsIdentifiers(nounA, nounB);
+        var path = this.sap.query(ids[0], ids[1]);
+        return new NounRelation(path.length(), nouns[path.ancestor()]);
+    }
+
     private ArrayList<Integer>[] getNounsIdentifiers(String nounA, String nounB) {
         if (nounA == null) {
             throw new IllegalArgumentException("Noun A is not a noun");
@@ -1,46 +0,0 @@
-import edu.princeton.cs.algs4.DirectedEdge;
-import edu.princeton.cs.algs4.EdgeWeightedDigraph;
-import edu.princeton.cs.algs4.Stack;
-import edu.princeton.cs.algs4.Topological;
-
-public class AcyclicShortestPath {
-    private double[] distTo;
-    private DirectedEdge[] edgeTo;
-
-    public AcyclicShortestPath(EdgeWeightedDigraph G, Topological topological, int s) {
-        distTo = new double[G.V()];
-        edgeTo = new DirectedEdge[G.V()];
-
-        for (int v = 0; v < G.V(); v++) {
-            distTo[v] = Double.POSITIVE_INFINITY;
-        }
-        distTo[s] = 0.0;
-
-        for (var v : topological.order()) {
-            for (var e : G.adj(v)) {
-                relax(e);
-            }
-        }
-    }
-
-    public double distTo(int v) {
-        return distTo[v];
-    }
-
-    public Iterable<DirectedEdge> pathTo(int v) {
-        var path = new Stack<DirectedEdge>();
-        for (var e = edgeTo[v]; e != null; e = edgeTo[e.from()]) {
-            path.push(e);
-        }
-        return path;
-    }
-
-    private void relax(DirectedEdge e) {
-        var v = e.from();
-        var w = e.to();
-        if (this.distTo[w] > this.distTo[v] + e.weight()) {
-            this.distTo[w] = this.distTo[v] + e.weight();
-            this.edgeTo[w] = e;
-        }
-    }
-}
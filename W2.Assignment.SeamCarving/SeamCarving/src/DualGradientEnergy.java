@@ -0,0 +1,77 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac DualGradientEnergy.java
+ *  Execution:     none
+ *
+ *  Dual-gradient energy function; border pixels get a constant energy
+ *
+ *----------------------------------------------------------------*/
+
+public class DualGradientEnergy implements EnergyFunction {
+
+    private static final int EDGE_ENERGY_SQUARED = 1000 * 1000;
+    private static final int VECTOR_PIXELS = 16; // Shorter segments are computed by the scalar kernel
+    private static final EnergyKernel KERNEL = EnergyKernel.create();
+    // Squared energies of a row segment; bands of rows are computed in parallel, so every thread has its own
+    private static final ThreadLocal<int[]> SQUARED = ThreadLocal.withInitial(() -> new int[0]);
+
+    @Override
+    public int radius() {
+        return 1;
+    }
+
+    @Override
+    public void computeRow(int[] pixels, int stride, int width, int height, int row, int fromCol, int toCol,
+                           EnergyMap energy) {
+        computeRegion(pixels, stride, width, height, row, row + 1, fromCol, toCol, energy);
+    }
+
+    @Override
+    public void computeRegion(int[] pixels, int stride, int width, int height, int fromRow, int toRow,
+                              int fromCol, int toCol, EnergyMap energy) {
+        var lastRow = height - 1;
+        var lastCol = width - 1;
+        var innerFromCol = Math.max(fromCol, 1);
+        var innerToCol = Math.min(toCol, lastCol);
+        var squared = innerToCol - innerFromCol >= VECTOR_PIXELS ? getSquared(innerToCol - innerFromCol) : null;
+
+        for (var row = fromRow; row < toRow; row++) {
+            var offset = row * stride;
+            if (row == 0 || row == lastRow) {
+                for (var col = fromCol; col < toCol; col++) {
+                    energy.setSquared(offset + col, EDGE_ENERGY_SQUARED);
+                }
+                continue;
+            }
+
+            if (fromCol == 0) {
+                energy.setSquared(offset, EDGE_ENERGY_SQUARED);
+            }
+            if (squared != null) {
+                KERNEL.computeRow(pixels, stride, row, innerFromCol, innerToCol, squared);
+                for (var col = innerFromCol; col < innerToCol; col++) {
+                    energy.setSquared(offset + col, squared[col - innerFromCol]);
+                }
+            } else {
+                for (var col = innerFromCol; col < innerToCol; col++) {
+                    energy.setSquared(offset + col, ScalarEnergyKernel.squaredGradient(pixels, offset + col, stride));
+                }
+            }
+            if (toCol > lastCol && lastCol > 0) {
+                energy.setSquared(offset + lastCol, EDGE_ENERGY_SQUARED);
+            }
+        }
+    }
+
+    private static int[] getSquared(int length) {
+        var squared = SQUARED.get();
+        if (squared.length < length) {
+            squared = new int[length];
+            SQUARED.set(squared);
+        }
+        return squared;
+    }
+}
@@ -0,0 +1,45 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac EnergyFunction.java
+ *  Execution:     none
+ *
+ *  Energy function used by the seam carver
+ *
+ *----------------------------------------------------------------*/
+
+public interface EnergyFunction {
+
+    /**
+     * Radius of the square neighbourhood the energy of a pixel depends on
+     */
+    int radius();
+
+    /**
+     * Compute energies of pixels fromCol (inclusive) to toCol (exclusive) of the given row. Pixels are
+     * row-major with the given stride; energy of pixel at row and col is stored at index row * stride + col.
+     * Implementations must be thread-safe, since bands of rows are computed in parallel
+     */
+    void computeRow(int[] pixels, int stride, int width, int height, int row, int fromCol, int toCol,
+                    EnergyMap energy);
+
+    /**
+     * Compute energies of pixels in rows fromRow (inclusive) to toRow (exclusive) and columns fromCol (inclusive)
+     * to toCol (exclusive)
+     */
+    default void computeRegion(int[] pixels, int stride, int width, int height, int fromRow, int toRow,
+                               int fromCol, int toCol, EnergyMap energy) {
+        for (var row = fromRow; row < toRow; row++) {
+            computeRow(pixels, stride, width, height, row, fromCol, toCol, energy);
+        }
+    }
+
+    /**
+     * Luminance of the given RGB color, from 0 to 255
+     */
+    static int luminance(int rgb) {
+        return (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114) / 1000;
+    }
+}
@@ -0,0 +1,40 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac EnergyKernel.java
+ *  Execution:     none
+ *
+ *  Kernel computing squared dual-gradient energies of a row segment
+ *
+ *----------------------------------------------------------------*/
+
+interface EnergyKernel {
+
+    /**
+     * Squared energies of pixels fromCol (inclusive) to toCol (exclusive) of the given row; the pixels must
+     * not lie on the border of the picture. Energy of pixel at column col is stored to squared[col - fromCol]
+     */
+    void computeRow(int[] pixels, int stride, int row, int fromCol, int toCol, int[] squared);
+
+    /**
+     * Kernel selected with the "seamcarver.kernel" system property: "vector" (default) uses the Vector API
+     * when the jdk.incubator.vector module is available, "scalar" always uses the scalar kernel. The vector
+     * kernel is built from SeamCarvingVector; unless the JVM runs with --add-modules jdk.incubator.vector and
+     * that class is on the class path, the scalar kernel is used without notice
+     */
+    static EnergyKernel create() {
+        var kernel = System.getProperty("seamcarver.kernel", "vector");
+        if ("vector".equals(kernel) && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded reflectively, so that the scalar kernel works without the incubator module
+                return (EnergyKernel) Class.forName("VectorEnergyKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return new ScalarEnergyKernel();
+            }
+        }
+
+        return new ScalarEnergyKernel();
+    }
+}
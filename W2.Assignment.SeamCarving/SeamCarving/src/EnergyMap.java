@@ -0,0 +1,137 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac EnergyMap.java
+ *  Execution:     none
+ *
+ *  Row-major energies of picture pixels stored with the selected precision
+ *
+ *----------------------------------------------------------------*/
+
+public final class EnergyMap {
+
+    private final EnergyPrecision precision;
+    private double[] doubleEnergy;
+    private float[] floatEnergy;
+    private int[] squaredEnergy;
+
+    EnergyMap(EnergyPrecision precision, int size) {
+        this.precision = precision;
+        allocate(size);
+    }
+
+    /**
+     * Energy of the pixel at the given index
+     */
+    public double get(int index) {
+        switch (this.precision) {
+            case FLOAT:
+                return this.floatEnergy[index];
+            case SQUARED_INTEGER:
+                return Math.sqrt(this.squaredEnergy[index]);
+            default:
+                return this.doubleEnergy[index];
+        }
+    }
+
+    /**
+     * Weight of the pixel at the given index in a seam; it is the squared energy for integer precision
+     */
+    double getCost(int index) {
+        switch (this.precision) {
+            case FLOAT:
+                return this.floatEnergy[index];
+            case SQUARED_INTEGER:
+                return this.squaredEnergy[index];
+            default:
+                return this.doubleEnergy[index];
+        }
+    }
+
+    /**
+     * Store the energy of the pixel at the given index; integer precision keeps the rounded squared energy
+     */
+    public void set(int index, double energy) {
+        switch (this.precision) {
+            case FLOAT:
+                this.floatEnergy[index] = (float) energy;
+                break;
+            case SQUARED_INTEGER:
+                this.squaredEnergy[index] = (int) Math.min(Math.round(energy * energy), Integer.MAX_VALUE);
+                break;
+            default:
+                this.doubleEnergy[index] = energy;
+                break;
+        }
+    }
+
+    /**
+     * Store the energy of the pixel at the given index given its squared value
+     */
+    public void setSquared(int index, int squaredEnergy) {
+        switch (this.precision) {
+            case FLOAT:
+                this.floatEnergy[index] = (float) Math.sqrt(squaredEnergy);
+                break;
+            case SQUARED_INTEGER:
+                this.squaredEnergy[index] = squaredEnergy;
+                break;
+            default:
+                this.doubleEnergy[index] = Math.sqrt(squaredEnergy);
+                break;
+        }
+    }
+
+    EnergyPrecision precision() {
+        return this.precision;
+    }
+
+    /**
+     * Backing array, so that it can be shifted with System.arraycopy
+     */
+    Object array() {
+        switch (this.precision) {
+            case FLOAT:
+                return this.floatEnergy;
+            case SQUARED_INTEGER:
+                return this.squaredEnergy;
+            default:
+                return this.doubleEnergy;
+        }
+    }
+
+    /**
+     * Copy the given number of rows into a backing array without gaps between rows
+     */
+    void compact(int rows, int width, int stride) {
+        var array = array();
+        allocate(rows * width);
+        var resizedArray = array();
+        for (var row = 0; row < rows; row++) {
+            System.arraycopy(array, row * stride, resizedArray, row * width, width);
+        }
+    }
+
+    /**
+     * Replace the backing array with a new one of the given size
+     */
+    void reset(int size) {
+        allocate(size);
+    }
+
+    private void allocate(int size) {
+        switch (this.precision) {
+            case FLOAT:
+                this.floatEnergy = new float[size];
+                break;
+            case SQUARED_INTEGER:
+                this.squaredEnergy = new int[size];
+                break;
+            default:
+                this.doubleEnergy = new double[size];
+                break;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac EnergyPrecision.java
+ *  Execution:     none
+ *
+ *  Precision of energies stored by the seam carver
+ *
+ *----------------------------------------------------------------*/
+
+public enum EnergyPrecision {
+    /**
+     * Energies are stored as doubles, 8 bytes per pixel
+     */
+    DOUBLE,
+
+    /**
+     * Energies are stored as floats, 4 bytes per pixel
+     */
+    FLOAT,
+
+    /**
+     * Squared gradients are stored as integers, 4 bytes per pixel; seams minimize the sum of squared
+     * gradients, so no square root is taken while carving
+     */
+    SQUARED_INTEGER
+}
@@ -0,0 +1,86 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac EntropyEnergy.java
+ *  Execution:     none
+ *
+ *  Luminance gradient plus entropy of the luminance histogram in a
+ *  9x9 window around the pixel; pixels outside the picture repeat
+ *  the nearest border pixel
+ *
+ *----------------------------------------------------------------*/
+
+import java.util.Arrays;
+
+public class EntropyEnergy implements EnergyFunction {
+
+    private static final int WINDOW_RADIUS = 4;
+    private static final int WINDOW_SIZE = 2 * WINDOW_RADIUS + 1;
+    private static final int BINS = 16;
+    private static final int BIN_SHIFT = 4; // 256 luminance levels are split into 16 bins
+    private static final double[] ENTROPY_TERMS = new double[WINDOW_SIZE * WINDOW_SIZE + 1];
+    private static final ThreadLocal<int[]> HISTOGRAM = ThreadLocal.withInitial(() -> new int[BINS]);
+
+    static {
+        // Entropy term -p * log2(p) for every possible count of pixels in a bin
+        for (var count = 1; count < ENTROPY_TERMS.length; count++) {
+            var p = (double) count / (WINDOW_SIZE * WINDOW_SIZE);
+            ENTROPY_TERMS[count] = -p * Math.log(p) / Math.log(2);
+        }
+    }
+
+    @Override
+    public int radius() {
+        return WINDOW_RADIUS;
+    }
+
+    @Override
+    public void computeRow(int[] pixels, int stride, int width, int height, int row, int fromCol, int toCol,
+                           EnergyMap energy) {
+        if (fromCol >= toCol) {
+            return;
+        }
+
+        // Fill the histogram for the first pixel and then slide the window along the row; rows computed by
+        // the same thread share the histogram
+        var histogram = HISTOGRAM.get();
+        Arrays.fill(histogram, 0);
+        for (var dx = -WINDOW_RADIUS; dx <= WINDOW_RADIUS; dx++) {
+            updateColumn(histogram, pixels, stride, width, height, row, fromCol + dx, 1);
+        }
+
+        var current = row * stride;
+        var above = Math.max(row - 1, 0) * stride;
+        var below = Math.min(row + 1, height - 1) * stride;
+        for (var col = fromCol; col < toCol; col++) {
+            if (col > fromCol) {
+                updateColumn(histogram, pixels, stride, width, height, row, col - WINDOW_RADIUS - 1, -1);
+                updateColumn(histogram, pixels, stride, width, height, row, col + WINDOW_RADIUS, 1);
+            }
+
+            var entropy = 0.0;
+            for (var count : histogram) {
+                entropy += ENTROPY_TERMS[count];
+            }
+
+            var left = EnergyFunction.luminance(pixels[current + Math.max(col - 1, 0)]);
+            var right = EnergyFunction.luminance(pixels[current + Math.min(col + 1, width - 1)]);
+            var top = EnergyFunction.luminance(pixels[above + col]);
+            var bottom = EnergyFunction.luminance(pixels[below + col]);
+
+            energy.set(current + col, Math.abs(right - left) + Math.abs(bottom - top) + entropy);
+        }
+    }
+
+    private static void updateColumn(int[] histogram, int[] pixels, int stride, int width, int height,
+                                     int row, int col, int delta) {
+        var clampedCol = Math.min(Math.max(col, 0), width - 1);
+        for (var dy = -WINDOW_RADIUS; dy <= WINDOW_RADIUS; dy++) {
+            var clampedRow = Math.min(Math.max(row + dy, 0), height - 1);
+            var bin = EnergyFunction.luminance(pixels[clampedRow * stride + clampedCol]) >> BIN_SHIFT;
+            histogram[bin] += delta;
+        }
+    }
+}
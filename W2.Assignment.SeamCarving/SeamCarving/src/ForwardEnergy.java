@@ -0,0 +1,42 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac ForwardEnergy.java
+ *  Execution:     none
+ *
+ *  Per-pixel forward energy: luminance differences between pixels
+ *  which become neighbours once the pixel is removed, plus the
+ *  cheaper of the two diagonal joins with the previous row
+ *
+ *----------------------------------------------------------------*/
+
+public class ForwardEnergy implements EnergyFunction {
+
+    @Override
+    public int radius() {
+        return 1;
+    }
+
+    @Override
+    public void computeRow(int[] pixels, int stride, int width, int height, int row, int fromCol, int toCol,
+                           EnergyMap energy) {
+        var above = Math.max(row - 1, 0) * stride;
+        var current = row * stride;
+        var below = Math.min(row + 1, height - 1) * stride;
+
+        for (var col = fromCol; col < toCol; col++) {
+            var left = EnergyFunction.luminance(pixels[current + Math.max(col - 1, 0)]);
+            var right = EnergyFunction.luminance(pixels[current + Math.min(col + 1, width - 1)]);
+            var top = EnergyFunction.luminance(pixels[above + col]);
+            var bottom = EnergyFunction.luminance(pixels[below + col]);
+
+            var horizontalJoin = Math.abs(right - left); // New edge when the pixel is removed by a vertical seam
+            var verticalJoin = Math.abs(bottom - top); // New edge when the pixel is removed by a horizontal seam
+            var diagonalJoin = Math.min(Math.abs(top - left), Math.abs(top - right));
+
+            energy.set(current + col, horizontalJoin + verticalJoin + diagonalJoin);
+        }
+    }
+}
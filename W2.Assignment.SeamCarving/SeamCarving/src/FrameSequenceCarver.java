@@ -0,0 +1,313 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac FrameSequenceCarver.java
+ *  Execution:     java FrameSequenceCarver inputDirectory outputDirectory
+ *                     width [-corridor n] [-threshold x]
+ *
+ *  Carves frames of a video to the given width. Seams of a frame are
+ *  searched only within a corridor around the seams of the previous
+ *  frame while energies of consecutive frames differ less than the
+ *  threshold, so seams do not jump between frames. Frames are decoded,
+ *  get their energies, get their seams removed and are written by
+ *  separate threads.
+ *
+ *  % java FrameSequenceCarver frames carved 480
+ *  frame0001.png: cold, change 100.0%, seams 812.4 ms
+ *  frame0002.png: warm, change 3.1%, seams 96.0 ms
+ *  ...
+ *
+ *  With -Dseamcarver.stats=true, time of the measure stage, which reads
+ *  every energy of the frame, and time spent computing energies on the
+ *  carve stage are reported; energies read by the former are not
+ *  computed again by the latter.
+ *
+ *----------------------------------------------------------------*/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+public class FrameSequenceCarver {
+    private static final int QUEUE_CAPACITY = 2; // Frames waiting between two stages
+    private static final int CHANGE_BLOCK = 8; // Energies are compared by sums of blocks tolerating small motion
+    private static final Frame END = new Frame(null);
+    private final int targetWidth;
+    private final int corridor;
+    private final double threshold;
+    private int[][] previousSeams; // Seams removed from the previous frame, in the order of removal
+
+    /*
+    Create a frame sequence carver; seams of a frame are searched within the given corridor around seams
+    of the previous frame while the relative change of energies stays under the given threshold
+     */
+    public FrameSequenceCarver(int targetWidth, int corridor, double threshold) {
+        if (targetWidth < 1) {
+            throw new IllegalArgumentException("Target width is invalid");
+        }
+        if (corridor < 1) {
+            throw new IllegalArgumentException("Corridor is invalid");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold is invalid");
+        }
+
+        this.targetWidth = targetWidth;
+        this.corridor = corridor;
+        this.threshold = threshold;
+    }
+
+    /*
+    Carve the given frames in their order and write them to the given directory; every frame has to be at least
+    as wide as the target width, which is checked before any frame is carved
+     */
+    public void run(List<Path> frames, Path outputDirectory) throws IOException, InterruptedException {
+        if (frames == null) {
+            throw new IllegalArgumentException("Frames are not specified");
+        }
+        if (outputDirectory == null) {
+            throw new IllegalArgumentException("Output directory is not specified");
+        }
+        for (var file : frames) {
+            validateFrame(file);
+        }
+
+        Files.createDirectories(outputDirectory);
+        this.previousSeams = null;
+        var decoded = new ArrayBlockingQueue<Frame>(QUEUE_CAPACITY);
+        var measured = new ArrayBlockingQueue<Frame>(QUEUE_CAPACITY);
+        var carved = new ArrayBlockingQueue<Frame>(QUEUE_CAPACITY);
+
+        var executor = Executors.newFixedThreadPool(4);
+        var stages = new ExecutorCompletionService<Void>(executor);
+        var futures = new ArrayList<Future<Void>>();
+        try {
+            futures.add(stages.submit(() -> decode(frames, decoded)));
+            futures.add(stages.submit(() -> measure(decoded, measured)));
+            futures.add(stages.submit(() -> carve(measured, carved)));
+            futures.add(stages.submit(() -> write(carved, outputDirectory)));
+
+            // A failed stage stops the others, which could wait for its frames forever
+            for (var i = 0; i < futures.size(); i++) {
+                stages.take().get();
+            }
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Frame carving failed", cause);
+        } finally {
+            for (var future : futures) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private void validateFrame(Path file) throws IOException {
+        // Only the header is read, so a clip with a frame narrower than the target fails before any output
+        try (var input = ImageIO.createImageInputStream(file.toFile())) {
+            var readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Image format is not supported: " + file);
+            }
+
+            var reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                var width = reader.getWidth(0);
+                if (width < this.targetWidth) {
+                    throw new IllegalArgumentException("Target width is invalid: " + file.getFileName()
+                            + " is " + width + " pixels wide");
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Void decode(List<Path> frames, BlockingQueue<Frame> output) throws IOException, InterruptedException {
+        for (var file : frames) {
+            var image = ImageIO.read(file.toFile());
+            if (image == null) {
+                throw new IOException("Image format is not supported: " + file);
+            }
+
+            var frame = new Frame(file);
+            frame.image = image;
+            output.put(frame);
+        }
+
+        output.put(END);
+        return null;
+    }
+
+    private Void measure(BlockingQueue<Frame> input, BlockingQueue<Frame> output) throws InterruptedException {
+        double[] previousEnergy = null;
+        for (var frame = input.take(); frame != END; frame = input.take()) {
+            frame.seamCarver = new SeamCarver(frame.image, 1);
+            frame.image = null;
+
+            // Energies are taken before seams are removed from the frame on the next stage
+            var start = System.nanoTime();
+            var width = frame.seamCarver.width();
+            var height = frame.seamCarver.height();
+            var blockColumns = (width + CHANGE_BLOCK - 1) / CHANGE_BLOCK;
+            var energy = new double[blockColumns * ((height + CHANGE_BLOCK - 1) / CHANGE_BLOCK)];
+            for (var row = 0; row < height; row++) {
+                var offset = row / CHANGE_BLOCK * blockColumns;
+                for (var col = 0; col < width; col++) {
+                    energy[offset + col / CHANGE_BLOCK] += frame.seamCarver.energy(col, row);
+                }
+            }
+
+            frame.change = getRelativeChange(previousEnergy, energy);
+            frame.measureNanos = System.nanoTime() - start;
+            previousEnergy = energy;
+            output.put(frame);
+        }
+
+        output.put(END);
+        return null;
+    }
+
+    private Void carve(BlockingQueue<Frame> input, BlockingQueue<Frame> output) throws InterruptedException {
+        for (var frame = input.take(); frame != END; frame = input.take()) {
+            var start = System.nanoTime();
+            var seamCarver = frame.seamCarver;
+            var count = seamCarver.width() - this.targetWidth; // Frames were checked to be wide enough
+            // Seams of the previous frame are reused only if it had the same size
+            frame.isWarm = this.previousSeams != null
+                    && this.previousSeams.length == count
+                    && (count == 0 || this.previousSeams[0].length == seamCarver.height())
+                    && frame.change < this.threshold;
+
+            var seams = new int[count][];
+            for (var s = 0; s < count; s++) {
+                seams[s] = frame.isWarm
+                        ? seamCarver.findVerticalSeamNear(this.previousSeams[s], this.corridor)
+                        : seamCarver.findVerticalSeam();
+                seamCarver.removeVerticalSeam(seams[s]);
+            }
+
+            this.previousSeams = seams;
+            frame.carveEnergyNanos = seamCarver.stats().nanos(SeamCarverStats.Phase.ENERGY);
+            frame.result = seamCarver.bufferedImage();
+            frame.seamCarver = null;
+            frame.seamNanos = System.nanoTime() - start;
+            output.put(frame);
+        }
+
+        output.put(END);
+        return null;
+    }
+
+    private Void write(BlockingQueue<Frame> input, Path outputDirectory) throws IOException, InterruptedException {
+        for (var frame = input.take(); frame != END; frame = input.take()) {
+            var fileName = frame.file.getFileName().toString().replaceFirst("(\\.[^.]*)?$", ".png");
+            if (!ImageIO.write(frame.result, "png", outputDirectory.resolve(fileName).toFile())) {
+                throw new IOException("Image writer is not found");
+            }
+
+            var line = String.format(Locale.ROOT, "%s: %s, change %.1f%%, seams %.1f ms",
+                    frame.file.getFileName(), frame.isWarm ? "warm" : "cold", frame.change * 100,
+                    frame.seamNanos / 1e6);
+            if (SeamCarverStats.ENABLED) {
+                line += String.format(Locale.ROOT, ", measure %.1f ms, energies %.1f ms carved",
+                        frame.measureNanos / 1e6, frame.carveEnergyNanos / 1e6);
+            }
+            StdOut.println(line);
+        }
+
+        return null;
+    }
+
+    private static double getRelativeChange(double[] previousEnergy, double[] energy) {
+        // Mean absolute change of block energies relative to the mean block energy of the previous frame
+        if (previousEnergy == null || previousEnergy.length != energy.length) {
+            return 1;
+        }
+
+        var change = 0.0;
+        var total = 0.0;
+        for (var i = 0; i < energy.length; i++) {
+            change += Math.abs(energy[i] - previousEnergy[i]);
+            total += previousEnergy[i];
+        }
+
+        return total == 0 ? (change == 0 ? 0 : 1) : change / total;
+    }
+
+    /*
+    Frame passed between stages of the pipeline
+     */
+    private static class Frame {
+
+        private final Path file;
+        private BufferedImage image;
+        private SeamCarver seamCarver;
+        private double change;
+        private boolean isWarm;
+        private BufferedImage result;
+        private long seamNanos;
+        private long measureNanos; // Energies read by the measure stage, which computes them on demand
+        private long carveEnergyNanos; // Energies computed by the carve stage, out of date after seam removal
+
+        Frame(Path file) {
+            this.file = file;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var positional = new ArrayList<String>();
+        var corridor = 8;
+        var threshold = 0.1;
+        for (var i = 0; i < args.length; i++) {
+            if ("-corridor".equals(args[i]) && i + 1 < args.length) {
+                corridor = Integer.parseInt(args[++i]);
+            } else if ("-threshold".equals(args[i]) && i + 1 < args.length) {
+                threshold = Double.parseDouble(args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+
+        if (positional.size() != 3) {
+            StdOut.println("Usage: java FrameSequenceCarver inputDirectory outputDirectory width " +
+                    "[-corridor n] [-threshold x]");
+            return;
+        }
+
+        List<Path> frames;
+        try (var files = Files.list(Paths.get(positional.get(0)))) {
+            frames = files.filter(file -> file.getFileName().toString().toLowerCase(Locale.ROOT)
+                            .matches(".*\\.(png|jpe?g|gif|bmp)"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        new FrameSequenceCarver(Integer.parseInt(positional.get(2)), corridor, threshold)
+                .run(frames, Paths.get(positional.get(1)));
+    }
+}
@@ -0,0 +1,576 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac MappedSeamCarver.java
+ *  Execution:     none
+ *
+ *  Seam carver datatype for pictures which do not fit the heap;
+ *  pixels and energies are kept in memory-mapped temporary files
+ *
+ *----------------------------------------------------------------*/
+
+import edu.princeton.cs.algs4.Picture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedSeamCarver implements Closeable {
+    private static final int BAND_BYTES = 64 * 1024 * 1024; // Size of a band of rows mapped at once
+    private static final int ENERGY_WINDOW_PIXELS = 1024 * 1024; // Pixels copied to the heap to compute energies
+    private static final int SEAM_COST_BLOCK_BYTES = 16 * 1024 * 1024; // Heap used by costs of horizontal seams
+    private int width;
+    private int height;
+    private final EnergyFunction energyFunction;
+    private final MappedBands pictureColors; // Row-major ARGB pixels; rows keep the original width as stride
+    private final MappedBands energy; // Row-major energies with the same layout as pixels
+    private final MappedBands edgeTo; // Step to the parent pixel of every pixel in the last found seam costs
+    private int[] window; // Pixels around the region whose energies are computed
+    private EnergyMap windowEnergy;
+    private int step; // Step to the parent pixel chosen by the last relax call
+
+    /*
+    Create a seam carver object based on the given picture
+     */
+    public MappedSeamCarver(Picture picture) throws IOException {
+        this(validatePicture(picture).width(), picture.height(), null, new DualGradientEnergy());
+
+        try {
+            var row = new int[this.width];
+            for (var y = 0; y < this.height; y++) {
+                for (var x = 0; x < this.width; x++) {
+                    row[x] = picture.getRGB(x, y);
+                }
+                this.pictureColors.writeInts(y, row, this.width);
+            }
+            computeEnergy();
+        } catch (RuntimeException e) {
+            closeOnFailure(e);
+            throw e;
+        }
+    }
+
+    /*
+    Create a seam carver object based on a file of row-major big-endian ARGB pixels of a picture with
+    the given width and height; temporary files are created in the default temporary directory
+     */
+    public MappedSeamCarver(Path argbFile, int width, int height) throws IOException {
+        this(argbFile, width, height, null, new DualGradientEnergy());
+    }
+
+    /*
+    Create a seam carver object based on a file of row-major big-endian ARGB pixels of a picture with
+    the given width and height; temporary files are created in the given directory, energies are computed
+    by the given function
+     */
+    public MappedSeamCarver(Path argbFile, int width, int height, Path tempDirectory, EnergyFunction energyFunction)
+            throws IOException {
+        this(width, height, tempDirectory, energyFunction);
+
+        try {
+            readPixels(argbFile);
+            computeEnergy();
+        } catch (IOException | RuntimeException e) {
+            closeOnFailure(e);
+            throw e;
+        }
+    }
+
+    private MappedSeamCarver(int width, int height, Path tempDirectory, EnergyFunction energyFunction)
+            throws IOException {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Picture size is invalid");
+        }
+        if (energyFunction == null) {
+            throw new IllegalArgumentException("Energy function is not specified");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.energyFunction = energyFunction;
+
+        this.pictureColors = new MappedBands(tempDirectory, height, width, Integer.BYTES);
+        MappedBands energy = null;
+        try {
+            energy = new MappedBands(tempDirectory, height, width, Double.BYTES);
+            this.edgeTo = new MappedBands(tempDirectory, height, width, Byte.BYTES);
+        } catch (IOException | RuntimeException e) {
+            try {
+                this.pictureColors.close();
+                if (energy != null) {
+                    energy.close();
+                }
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+        this.energy = energy;
+    }
+
+    /*
+    Current picture; it has to fit the heap
+     */
+    public Picture picture() {
+        var picture = new Picture(this.width, this.height);
+        var row = new int[this.width];
+        for (var y = 0; y < this.height; y++) {
+            this.pictureColors.readInts(y, 0, row, 0, this.width);
+            for (var x = 0; x < this.width; x++) {
+                picture.setRGB(x, y, row[x]);
+            }
+        }
+
+        return picture;
+    }
+
+    /*
+    Write row-major big-endian ARGB pixels of current picture to the given file
+     */
+    public void writeTo(Path argbFile) throws IOException {
+        if (argbFile == null) {
+            throw new IllegalArgumentException("File is not specified");
+        }
+
+        var row = new int[this.width];
+        var buffer = ByteBuffer.allocate(this.width * Integer.BYTES);
+        try (var channel = FileChannel.open(argbFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (var y = 0; y < this.height; y++) {
+                this.pictureColors.readInts(y, 0, row, 0, this.width);
+                buffer.clear();
+                buffer.asIntBuffer().put(row);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    /*
+    Width of current picture
+     */
+    public int width() {
+        return this.width;
+    }
+
+    /*
+    Height of current picture
+     */
+    public int height() {
+        return this.height;
+    }
+
+    /*
+    Energy of pixel at column x and row y
+     */
+    public double energy(int x, int y) {
+        if (x < 0 ||
+                y < 0 ||
+                x > (this.width - 1) ||
+                y > (this.height - 1)) {
+            throw new IllegalArgumentException("Invalid coordinates");
+        }
+
+        return this.energy.getDouble(y, x);
+    }
+
+    /*
+    Sequence of indices for horizontal seam
+     */
+    public int[] findHorizontalSeam() {
+        // Costs of a column depend on the whole previous column, so columns are relaxed in blocks; within
+        // a block every next column lags one row behind the previous one, which lets the block go through
+        // the mapped bands from top to bottom
+        var bandRows = this.energy.rowsPerBand;
+        var blockColumns = Math.max(1, Math.min(Math.min(bandRows, this.width),
+                SEAM_COST_BLOCK_BYTES / Double.BYTES / this.height));
+        var distTo = new double[blockColumns][this.height];
+        var prevColumn = new double[this.height];
+
+        for (var fromCol = 0; fromCol < this.width; fromCol += blockColumns) {
+            var columns = Math.min(blockColumns, this.width - fromCol);
+            for (var top = 0; top - (columns - 1) < this.height; top += bandRows) {
+                for (var k = 0; k < columns; k++) {
+                    var col = fromCol + k;
+                    var parentDist = k == 0 ? prevColumn : distTo[k - 1];
+                    var dist = distTo[k];
+                    for (var row = Math.max(top - k, 0); row < Math.min(top + bandRows - k, this.height); row++) {
+                        var cost = this.energy.getDouble(row, col);
+                        if (col == 0) {
+                            dist[row] = cost;
+                            continue;
+                        }
+
+                        dist[row] = relax(parentDist, row, this.height - 1, cost);
+                        this.edgeTo.putByte(row, col, (byte) this.step);
+                    }
+                }
+            }
+            System.arraycopy(distTo[columns - 1], 0, prevColumn, 0, this.height);
+        }
+
+        var result = new int[this.width];
+        result[this.width - 1] = getMinPixel(prevColumn, this.height);
+        for (var col = this.width - 1; col > 0; col--) {
+            result[col - 1] = result[col] + this.edgeTo.getByte(result[col], col);
+        }
+
+        return result;
+    }
+
+    /*
+    Sequence of indices for vertical seam
+     */
+    public int[] findVerticalSeam() {
+        // Only costs of the previous row are kept on the heap; rows are streamed through the mapped bands
+        var prevRow = new double[this.width];
+        var row = new double[this.width];
+        var steps = new byte[this.width];
+        this.energy.readDoubles(0, prevRow, this.width);
+
+        for (var y = 1; y < this.height; y++) {
+            this.energy.readDoubles(y, row, this.width);
+            for (var x = 0; x < this.width; x++) {
+                row[x] = relax(prevRow, x, this.width - 1, row[x]);
+                steps[x] = (byte) this.step;
+            }
+            this.edgeTo.writeBytes(y, steps, this.width);
+
+            var temp = prevRow;
+            prevRow = row;
+            row = temp;
+        }
+
+        var result = new int[this.height];
+        result[this.height - 1] = getMinPixel(prevRow, this.width);
+        for (var y = this.height - 1; y > 0; y--) {
+            result[y - 1] = result[y] + this.edgeTo.getByte(y, result[y]);
+        }
+
+        return result;
+    }
+
+    /*
+    Remove horizontal seam from the current picture
+     */
+    public void removeHorizontalSeam(int[] seam) {
+        SeamCarver.validateSeam(seam, this.width, this.height);
+
+        if (this.height == 1) {
+            return;
+        }
+
+        // Shift pixels below the seam one row up; on every row they form runs of columns
+        var minRow = this.height;
+        for (var row : seam) {
+            minRow = Math.min(minRow, row);
+        }
+
+        for (var row = minRow; row < this.height - 1; row++) {
+            var col = 0;
+            while (col < this.width) {
+                if (seam[col] > row) {
+                    col++;
+                    continue;
+                }
+
+                var start = col;
+                while (col < this.width && seam[col] <= row) {
+                    col++;
+                }
+                this.pictureColors.copyUp(row + 1, start, col - start);
+                this.energy.copyUp(row + 1, start, col - start);
+            }
+        }
+
+        this.height--;
+        updateEnergy(seam, false);
+    }
+
+    /*
+    Remove vertical seam from the current picture
+     */
+    public void removeVerticalSeam(int[] seam) {
+        SeamCarver.validateSeam(seam, this.height, this.width);
+
+        if (this.width == 1) {
+            return;
+        }
+
+        // Shift the tail of every row one pixel to the left within its mapped band
+        for (var row = 0; row < this.height; row++) {
+            var col = seam[row];
+            this.pictureColors.shiftLeft(row, col + 1, this.width - col - 1);
+            this.energy.shiftLeft(row, col + 1, this.width - col - 1);
+        }
+
+        this.width--;
+        updateEnergy(seam, true);
+    }
+
+    /*
+    Release the temporary files
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.pictureColors.close();
+            this.energy.close();
+        } finally {
+            this.edgeTo.close();
+        }
+    }
+
+    private void closeOnFailure(Exception failure) {
+        // Temporary files of a carver which failed to be created are deleted; the failure is reported, not the close
+        try {
+            close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static Picture validatePicture(Picture picture) {
+        if (picture == null) {
+            throw new IllegalArgumentException("Picture is not specified");
+        }
+
+        return picture;
+    }
+
+    private void readPixels(Path argbFile) throws IOException {
+        if (argbFile == null) {
+            throw new IllegalArgumentException("File is not specified");
+        }
+
+        var row = new int[this.width];
+        var buffer = ByteBuffer.allocate(this.width * Integer.BYTES);
+        try (var channel = FileChannel.open(argbFile, StandardOpenOption.READ)) {
+            if (channel.size() != (long) this.width * this.height * Integer.BYTES) {
+                throw new IllegalArgumentException("Pixels do not match picture size");
+            }
+
+            for (var y = 0; y < this.height; y++) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IllegalArgumentException("Pixels do not match picture size");
+                    }
+                }
+                buffer.flip();
+                buffer.asIntBuffer().get(row);
+                this.pictureColors.writeInts(y, row, this.width);
+            }
+        }
+    }
+
+    private void computeEnergy() {
+        var rows = Math.max(1, ENERGY_WINDOW_PIXELS / this.width);
+        for (var row = 0; row < this.height; row += rows) {
+            computeEnergy(row, Math.min(row + rows, this.height), 0, this.width);
+        }
+    }
+
+    private void computeEnergy(int fromRow, int toRow, int fromCol, int toCol) {
+        // The region is copied to the heap with its neighbourhood; the window is cut only inside the picture
+        // and at least the radius away from the region, so the energy function sees the same neighbours
+        var radius = this.energyFunction.radius();
+        var windowFromRow = Math.max(fromRow - radius, 0);
+        var windowFromCol = Math.max(fromCol - radius, 0);
+        var windowWidth = Math.min(toCol + radius, this.width) - windowFromCol;
+        var windowHeight = Math.min(toRow + radius, this.height) - windowFromRow;
+        var size = windowWidth * windowHeight;
+        if (this.window == null || this.window.length < size) {
+            this.window = new int[size];
+            this.windowEnergy = new EnergyMap(EnergyPrecision.DOUBLE, size);
+        }
+
+        for (var row = 0; row < windowHeight; row++) {
+            this.pictureColors.readInts(windowFromRow + row, windowFromCol, this.window, row * windowWidth,
+                    windowWidth);
+        }
+        this.energyFunction.computeRegion(this.window, windowWidth, windowWidth, windowHeight,
+                fromRow - windowFromRow, toRow - windowFromRow, fromCol - windowFromCol, toCol - windowFromCol,
+                this.windowEnergy);
+
+        for (var row = fromRow; row < toRow; row++) {
+            var offset = (row - windowFromRow) * windowWidth - windowFromCol;
+            for (var col = fromCol; col < toCol; col++) {
+                this.energy.putDouble(row, col, this.windowEnergy.get(offset + col));
+            }
+        }
+    }
+
+    private void updateEnergy(int[] seam, boolean isVertical) {
+        // Recompute energies of pixels whose neighbourhood contained the removed pixels
+        var radius = this.energyFunction.radius();
+        var lastPixel = (isVertical ? this.width : this.height) - 1;
+        for (var i = 0; i < seam.length; i++) {
+            var min = seam[i];
+            var max = seam[i];
+            for (var k = Math.max(i - radius, 0); k <= Math.min(i + radius, seam.length - 1); k++) {
+                min = Math.min(min, seam[k]);
+                max = Math.max(max, seam[k]);
+            }
+
+            var from = Math.max(min - radius, 0);
+            var to = Math.min(max + radius - 1, lastPixel);
+            if (isVertical) {
+                computeEnergy(i, i + 1, from, to + 1);
+            } else {
+                computeEnergy(from, to + 1, i, i + 1);
+            }
+        }
+    }
+
+    private double relax(double[] parentDist, int j, int lastPixel, double cost) {
+        var step = 0;
+        var minDist = parentDist[j];
+        if (j > 0 && parentDist[j - 1] <= minDist) {
+            step = -1;
+            minDist = parentDist[j - 1];
+        }
+        if (j < lastPixel && parentDist[j + 1] < minDist) {
+            step = 1;
+            minDist = parentDist[j + 1];
+        }
+
+        this.step = step;
+        return minDist + cost;
+    }
+
+    private static int getMinPixel(double[] dist, int length) {
+        var minPixel = 0;
+        for (var j = 1; j < length; j++) {
+            if (dist[j] < dist[minPixel]) {
+                minPixel = j;
+            }
+        }
+
+        return minPixel;
+    }
+
+    /*
+    Row-major values in a temporary file mapped as bands of whole rows, so that a row never crosses a band
+     */
+    private static class MappedBands implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer[] bands;
+        private final int rowsPerBand;
+        private final int rowBytes;
+        private final int elementSize;
+
+        MappedBands(Path directory, int rows, int stride, int elementSize) throws IOException {
+            var file = directory == null
+                    ? Files.createTempFile("seam-carver", ".bin")
+                    : Files.createTempFile(directory, "seam-carver", ".bin");
+            // The file is deleted on close; the mapping is released once the bands are garbage collected
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+
+            try {
+                this.elementSize = elementSize;
+                this.rowBytes = Math.multiplyExact(stride, elementSize);
+                this.rowsPerBand = Math.max(1, BAND_BYTES / this.rowBytes);
+                this.bands = new ByteBuffer[(rows + this.rowsPerBand - 1) / this.rowsPerBand];
+                for (var b = 0; b < this.bands.length; b++) {
+                    var bandRows = Math.min(this.rowsPerBand, rows - b * this.rowsPerBand);
+                    this.bands[b] = this.channel
+                            .map(FileChannel.MapMode.READ_WRITE, (long) b * this.rowsPerBand * this.rowBytes,
+                                    (long) bandRows * this.rowBytes)
+                            .order(ByteOrder.nativeOrder());
+                }
+            } catch (IOException | RuntimeException e) {
+                this.channel.close();
+                throw e;
+            }
+        }
+
+        double getDouble(int row, int col) {
+            return band(row).getDouble(offset(row, col));
+        }
+
+        void putDouble(int row, int col, double value) {
+            band(row).putDouble(offset(row, col), value);
+        }
+
+        byte getByte(int row, int col) {
+            return band(row).get(offset(row, col));
+        }
+
+        void putByte(int row, int col, byte value) {
+            band(row).put(offset(row, col), value);
+        }
+
+        void readInts(int row, int col, int[] dest, int destOffset, int length) {
+            var band = band(row);
+            var offset = offset(row, col);
+            for (var i = 0; i < length; i++) {
+                dest[destOffset + i] = band.getInt(offset + i * Integer.BYTES);
+            }
+        }
+
+        void writeInts(int row, int[] src, int length) {
+            var band = band(row);
+            var offset = offset(row, 0);
+            for (var i = 0; i < length; i++) {
+                band.putInt(offset + i * Integer.BYTES, src[i]);
+            }
+        }
+
+        void readDoubles(int row, double[] dest, int length) {
+            var band = band(row);
+            var offset = offset(row, 0);
+            for (var i = 0; i < length; i++) {
+                dest[i] = band.getDouble(offset + i * Double.BYTES);
+            }
+        }
+
+        void writeBytes(int row, byte[] src, int length) {
+            band(row).put(offset(row, 0), src, 0, length);
+        }
+
+        /*
+        Move the given number of values starting at the given column one position to the left
+         */
+        void shiftLeft(int row, int col, int length) {
+            var band = band(row);
+            var offset = offset(row, col);
+            band.put(offset - this.elementSize, band, offset, length * this.elementSize);
+        }
+
+        /*
+        Move the given number of values of the given row starting at the given column to the previous row
+         */
+        void copyUp(int row, int col, int length) {
+            band(row - 1).put(offset(row - 1, col), band(row), offset(row, col), length * this.elementSize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+
+        private ByteBuffer band(int row) {
+            return this.bands[row / this.rowsPerBand];
+        }
+
+        private int offset(int row, int col) {
+            return (row % this.rowsPerBand) * this.rowBytes + col * this.elementSize;
+        }
+    }
+}
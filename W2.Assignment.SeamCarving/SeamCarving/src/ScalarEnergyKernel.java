@@ -0,0 +1,66 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac ScalarEnergyKernel.java
+ *  Execution:     none
+ *
+ *  Dual-gradient energy kernel computing one pixel at a time
+ *
+ *----------------------------------------------------------------*/
+
+final class ScalarEnergyKernel implements EnergyKernel {
+
+    private static final int RED = 16;
+    private static final int GREEN = 8;
+    private static final int BLUE = 0;
+
+    @Override
+    public void computeRow(int[] pixels, int stride, int row, int fromCol, int toCol, int[] squared) {
+        var offset = row * stride;
+        for (var col = fromCol; col < toCol; col++) {
+            squared[col - fromCol] = squaredGradient(pixels, offset + col, stride);
+        }
+    }
+
+    /**
+     * Squared dual-gradient energy of the pixel at the given index, which must not lie on the border
+     */
+    static int squaredGradient(int[] pixels, int i, int stride) {
+        var rgbNextX = pixels[i + 1];
+        var rgbPrevX = pixels[i - 1];
+        var rgbNextY = pixels[i + stride];
+        var rgbPrevY = pixels[i - stride];
+
+        // Squares of color differences are small integers, so they are summed exactly without Math.pow
+        var yieldingX = square(getRed(rgbNextX) - getRed(rgbPrevX))
+                + square(getGreen(rgbNextX) - getGreen(rgbPrevX))
+                + square(getBlue(rgbNextX) - getBlue(rgbPrevX));
+        var yieldingY = square(getRed(rgbNextY) - getRed(rgbPrevY))
+                + square(getGreen(rgbNextY) - getGreen(rgbPrevY))
+                + square(getBlue(rgbNextY) - getBlue(rgbPrevY));
+
+        return yieldingX + yieldingY;
+    }
+
+    private static int square(int value) {
+        return value * value;
+    }
+
+    private static int getRed(int rgb) {
+        return getColor(rgb, RED);
+    }
+
+    private static int getGreen(int rgb) {
+        return getColor(rgb, GREEN);
+    }
+
+    private static int getBlue(int rgb) {
+        return getColor(rgb, BLUE);
+    }
+
+    private static int getColor(int rgb, int shift) {
+        return (rgb >> shift) & 0xFF;
+    }
+}
@@ -1,7 +1,7 @@
 /*----------------------------------------------------------------
  *  Author:        Pylyp Lebediev
  *  Written:       05/04/2023
- *  Last updated:  10/04/2023
+ *  Last updated:  18/10/2026
  *
  *  Compilation:   javac SeamCarver.java
  *  Execution:     java SeamCarver
@@ -10,75 +10,193 @@
  *
  *----------------------------------------------------------------*/
 
-import edu.princeton.cs.algs4.DirectedEdge;
-import edu.princeton.cs.algs4.EdgeWeightedDigraph;
 import edu.princeton.cs.algs4.Picture;
-import edu.princeton.cs.algs4.Topological;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RecursiveAction;
 
 public class SeamCarver {
-    private static final double EDGE_ENERGY = 1000.0;
-    private static final int RED = 16;
-    private static final int GREEN = 8;
-    private static final int BLUE = 0;
+    private static final int PARALLEL_ENERGY_THRESHOLD = 512 * 512; // Smaller pictures are not worth forking
+    private static final int ENERGY_BAND_PIXELS = 64 * 1024; // Pixels in a band computed by a single task
+    private static final int PARALLEL_SEAM_COST_THRESHOLD = 4096; // Shorter lines are relaxed by a single thread
+    private static final int SEAM_COST_STRIP_PIXELS = 1024; // Minimum pixels of a line relaxed by one worker
+    private static final int PYRAMID_MIN_PIXELS = 64; // Lines of the coarsest pyramid level are not shorter
+    private static final int MAX_WASTED_PERCENT = 50; // Backing arrays are trimmed once more of them is unused
+    private static final int CARVE_BATCH_SEAMS = 16; // Seams removed before both orientations are compared again
+    private static final ExecutorService SEAM_COST_WORKERS = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "seam-cost-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Energy pools of parallelism other than the common pool's, shared by all carvers; idle workers retire
+    private static final ConcurrentMap<Integer, ForkJoinPool> ENERGY_POOLS = new ConcurrentHashMap<>();
     private int width;
     private int height;
-    private int[][] pictureColors;
-    private double[][] energy;
-    private boolean isTransposed;
+    private final int parallelism;
+    private int stride; // Row length of the backing arrays; pixels are shifted in place, so it may exceed width
+    private int[] pictureColors; // Row-major pixels of the picture
+    private final EnergyMap energy; // Row-major energies with the same layout as pixels
+    private long[] dirtyEnergy; // One bit per pixel whose energy is out of date; every row starts a new word
+    private int dirtyWords; // Words of a row in the dirty bitmap
+    private int dirtyPixels; // Upper bound of pixels whose energy is out of date; energies read on demand keep it
+    private final EnergyFunction energyFunction;
+    private final SeamCost verticalSeamCost;
+    private final SeamCost horizontalSeamCost;
+    private final SeamPyramid pyramid; // Levels are built by the first approximate search
+    private int[] positions; // Original positions of pixels while seams to insert are searched on a copy
+    private int[] changedFrom = new int[0]; // First pixel of every line with out of date energy after removal
+    private int[] changedTo = new int[0]; // Last pixel of every line with out of date energy after removal
+    private final SeamCarverStats stats = SeamCarverStats.ENABLED ? new SeamCarverStats() : null;
 
     /*
     Create a seam carver object based on the given picture
      */
     public SeamCarver(Picture picture) {
-        if (picture == null) {
-            throw new IllegalArgumentException("Picture is not specified");
-        }
+        this(picture, ForkJoinPool.getCommonPoolParallelism());
+    }
 
-        this.width = picture.width();
-        this.height = picture.height();
-        this.pictureColors = new int[this.height][this.width]; // Only picture colors are stored for optimization
-        for (var col = 0; col < this.width; col++) {
-            for (var row = 0; row < this.height; row++) {
-                this.pictureColors[row][col] = picture.getRGB(col, row);
-            }
-        }
+    /*
+    Create a seam carver object based on the given picture; energies and seam costs are computed by the given
+    number of threads
+     */
+    public SeamCarver(Picture picture, int parallelism) {
+        this(picture, parallelism, EnergyPrecision.DOUBLE, new DualGradientEnergy());
+    }
 
-        this.energy = new double[this.height][this.width];
-        for (var col = 0; col < this.width; col++) {
-            for (var row = 0; row < this.height; row++) {
-                this.energy[row][col] = getEnergyInternal(col, row);
-            }
+    /*
+    Create a seam carver object based on the given picture; energies and seam costs are computed by the given
+    number of threads, energies are stored with the given precision
+     */
+    public SeamCarver(Picture picture, int parallelism, EnergyPrecision precision) {
+        this(picture, parallelism, precision, new DualGradientEnergy());
+    }
+
+    /*
+    Create a seam carver object based on the given picture and energy function
+     */
+    public SeamCarver(Picture picture, EnergyFunction energyFunction) {
+        this(picture, ForkJoinPool.getCommonPoolParallelism(), EnergyPrecision.DOUBLE, energyFunction);
+    }
+
+    /*
+    Create a seam carver object based on the given picture; energies and seam costs are computed by the given
+    number of threads, energies are computed by the given function and stored with the given precision
+     */
+    public SeamCarver(Picture picture, int parallelism, EnergyPrecision precision, EnergyFunction energyFunction) {
+        this(readPicture(picture), parallelism, precision, energyFunction);
+    }
+
+    /*
+    Create a seam carver object based on the given image; pixels of integer RGB images are copied from the raster
+     */
+    public SeamCarver(BufferedImage image) {
+        this(image, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /*
+    Create a seam carver object based on the given image; energies and seam costs are computed by the given
+    number of threads
+     */
+    public SeamCarver(BufferedImage image, int parallelism) {
+        this(readImage(image), parallelism, EnergyPrecision.DOUBLE, new DualGradientEnergy());
+    }
+
+    /*
+    Create a seam carver object based on row-major ARGB pixels of a picture with the given width and height
+     */
+    public SeamCarver(int[] argb, int width, int height) {
+        this(argb, width, height, ForkJoinPool.getCommonPoolParallelism(), EnergyPrecision.DOUBLE,
+                new DualGradientEnergy());
+    }
+
+    /*
+    Create a seam carver object based on row-major ARGB pixels of a picture with the given width and height;
+    energies and seam costs are computed by the given number of threads, energies are computed by the given
+    function and stored with the given precision
+     */
+    public SeamCarver(int[] argb, int width, int height, int parallelism, EnergyPrecision precision,
+                      EnergyFunction energyFunction) {
+        this(copyPixels(argb, width, height), parallelism, precision, energyFunction);
+    }
+
+    private SeamCarver(Pixels pixels, int parallelism, EnergyPrecision precision, EnergyFunction energyFunction) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism is invalid");
+        }
+        if (precision == null) {
+            throw new IllegalArgumentException("Energy precision is not specified");
         }
+        if (energyFunction == null) {
+            throw new IllegalArgumentException("Energy function is not specified");
+        }
+
+        this.parallelism = parallelism;
+        this.width = pixels.width;
+        this.height = pixels.height;
+        this.stride = pixels.width;
+        this.pictureColors = pixels.argb; // Pixels are used as the backing array without copying
 
-        this.isTransposed = false;
+        this.energyFunction = energyFunction;
+        this.energy = new EnergyMap(precision, this.height * this.width);
+        markEnergyStale(); // Energies are computed once they are needed
+
+        this.verticalSeamCost = new SeamCost(true);
+        this.horizontalSeamCost = new SeamCost(false);
+        this.pyramid = new SeamPyramid();
     }
 
     /*
     Current picture
      */
     public Picture picture() {
-        if (this.isTransposed) {
-            transpose();
-        }
-
         var picture = new Picture(this.width, this.height);
-        for (var col = 0; col < this.width; col++) {
-            for (var row = 0; row < this.height; row++) {
-                picture.setRGB(col, row, this.pictureColors[row][col]);
+        for (var row = 0; row < this.height; row++) {
+            var offset = row * this.stride;
+            for (var col = 0; col < this.width; col++) {
+                picture.setRGB(col, row, this.pictureColors[offset + col]);
             }
         }
 
         return picture;
     }
 
+    /*
+    Current picture as an RGB image; rows are copied straight into its raster
+     */
+    public BufferedImage bufferedImage() {
+        var image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+        var data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        copyRows(this.pictureColors, data);
+
+        return image;
+    }
+
+    /*
+    Row-major ARGB pixels of current picture
+     */
+    public int[] argb() {
+        var pixels = new int[this.width * this.height];
+        copyRows(this.pictureColors, pixels);
+
+        return pixels;
+    }
+
     /*
     Width of current picture
      */
     public int width() {
-        if (this.isTransposed) {
-            return this.height;
-        }
-
         return this.width;
     }
 
@@ -86,10 +204,6 @@ public class SeamCarver {
     Height of current picture
      */
     public int height() {
-        if (this.isTransposed) {
-            return this.width;
-        }
-
         return this.height;
     }
 
@@ -97,10 +211,6 @@ public class SeamCarver {
     Energy of pixel at column x and row y
      */
     public double energy(int x, int y) {
-        if (this.isTransposed) {
-            transpose();
-        }
-
         if (x < 0 ||
                 y < 0 ||
                 x > (this.width - 1) ||
@@ -108,284 +218,696 @@ public class SeamCarver {
             throw new IllegalArgumentException("Invalid coordinates");
         }
 
-        return energy[y][x];
+        ensureEnergy(y, x);
+        return this.energy.get(y * this.stride + x);
+    }
+
+    /*
+    Time, count and allocated bytes of every phase so far; they are collected only if the JVM is started
+    with -Dseamcarver.stats=true
+     */
+    public SeamCarverStats.Snapshot stats() {
+        return SeamCarverStats.ENABLED ? this.stats.snapshot() : SeamCarverStats.empty();
     }
 
     /*
     Sequence of indices for horizontal seam
      */
     public int[] findHorizontalSeam() {
-        if (!this.isTransposed) {
-            transpose();
-        }
-
-        return findSeam();
+        return this.horizontalSeamCost.findSeam();
     }
 
     /*
     Sequence of indices for vertical seam
      */
     public int[] findVerticalSeam() {
-        if (this.isTransposed) {
-            transpose();
-        }
+        return this.verticalSeamCost.findSeam();
+    }
+
+    /*
+    Sequence of indices for an approximate horizontal seam. The seam is found on a pyramid of coarser pictures
+    and refined on every finer level only within the given number of pixels around the projected coarse seam
+     */
+    public int[] findHorizontalSeam(int corridor) {
+        validateCorridor(corridor);
 
-        return findSeam();
+        return this.pyramid.findSeam(false, corridor);
+    }
+
+    /*
+    Sequence of indices for an approximate vertical seam. The seam is found on a pyramid of coarser pictures
+    and refined on every finer level only within the given number of pixels around the projected coarse seam
+     */
+    public int[] findVerticalSeam(int corridor) {
+        validateCorridor(corridor);
+
+        return this.pyramid.findSeam(true, corridor);
+    }
+
+    /*
+    Sequence of indices for horizontal seam searched only within the given number of pixels around the given
+    seam, for example a seam of the previous frame of a video
+     */
+    public int[] findHorizontalSeamNear(int[] seam, int corridor) {
+        validateSeam(seam, this.width, this.height);
+        validateCorridor(corridor);
+
+        return this.pyramid.findSeamNear(false, seam, corridor);
+    }
+
+    /*
+    Sequence of indices for vertical seam searched only within the given number of pixels around the given
+    seam, for example a seam of the previous frame of a video
+     */
+    public int[] findVerticalSeamNear(int[] seam, int corridor) {
+        validateSeam(seam, this.height, this.width);
+        validateCorridor(corridor);
+
+        return this.pyramid.findSeamNear(true, seam, corridor);
+    }
+
+    /*
+    Compare cost and search time of the approximate horizontal seam with the given corridor to the exact one
+     */
+    public SeamSearchReport compareHorizontalSeams(int corridor) {
+        return compareSeams(false, corridor);
+    }
+
+    /*
+    Compare cost and search time of the approximate vertical seam with the given corridor to the exact one
+     */
+    public SeamSearchReport compareVerticalSeams(int corridor) {
+        return compareSeams(true, corridor);
     }
 
     /*
     Remove horizontal seam from the current picture
      */
     public void removeHorizontalSeam(int[] seam) {
-        if (!this.isTransposed) {
-            transpose();
+        validateSeam(seam, this.width, this.height);
+
+        if (this.height == 1) {
+            return;
         }
 
-        removeSeam(seam);
+        shiftSeam(seam, false);
+        compactIfSparse();
     }
 
     /*
     Remove vertical seam from the current picture
      */
     public void removeVerticalSeam(int[] seam) {
-        if (this.isTransposed) {
-            transpose();
+        validateSeam(seam, this.height, this.width);
+
+        if (this.width == 1) {
+            return;
         }
 
-        removeSeam(seam);
+        shiftSeam(seam, true);
+        compactIfSparse();
     }
 
-    private double getEnergyInternal(int x, int y) {
-        if (x == 0 ||
-                y == 0 ||
-                x == (this.width - 1) ||
-                y == (this.height - 1)) {
-            return EDGE_ENERGY;
+    /*
+    Resize current picture to the given width and height by removing vertical and horizontal seams
+     */
+    public void carveTo(int targetWidth, int targetHeight) {
+        if (targetWidth < 1 || targetWidth > this.width) {
+            throw new IllegalArgumentException("Target width is invalid");
+        }
+        if (targetHeight < 1 || targetHeight > this.height) {
+            throw new IllegalArgumentException("Target height is invalid");
         }
 
-        var rgbNextX = this.pictureColors[y][x + 1];
-        var rgbPrevX = this.pictureColors[y][x - 1];
-        var rgbNextY = this.pictureColors[y + 1][x];
-        var rgbPrevY = this.pictureColors[y - 1][x];
+        // Pixels are shifted in place while carving and trimmed only if most of the backing arrays is unused
+        while (this.width > targetWidth || this.height > targetHeight) {
+            boolean isVertical;
+            int count;
+            if (this.width > targetWidth && this.height > targetHeight) {
+                // Removing a seam invalidates costs of the other orientation, so the orientation with the lower
+                // average energy per pixel is chosen for a batch of seams, which are repaired incrementally
+                this.verticalSeamCost.findSeam();
+                this.horizontalSeamCost.findSeam();
+                isVertical = this.verticalSeamCost.seamEnergy / this.height
+                        <= this.horizontalSeamCost.seamEnergy / this.width;
+                count = Math.min(CARVE_BATCH_SEAMS, isVertical ? this.width - targetWidth : this.height - targetHeight);
+            } else {
+                isVertical = this.width > targetWidth;
+                count = isVertical ? this.width - targetWidth : this.height - targetHeight;
+            }
 
-        var yieldingX = Math.pow((getRed(rgbNextX) - getRed(rgbPrevX)), 2)
-                + Math.pow((getGreen(rgbNextX) - getGreen(rgbPrevX)), 2)
-                + Math.pow((getBlue(rgbNextX) - getBlue(rgbPrevX)), 2);
-        var yieldingY = Math.pow((getRed(rgbNextY) - getRed(rgbPrevY)), 2)
-                + Math.pow((getGreen(rgbNextY) - getGreen(rgbPrevY)), 2)
-                + Math.pow((getBlue(rgbNextY) - getBlue(rgbPrevY)), 2);
+            var seamCost = isVertical ? this.verticalSeamCost : this.horizontalSeamCost;
+            for (var s = 0; s < count; s++) {
+                shiftSeam(seamCost.findSeam(), isVertical);
+            }
+        }
 
-        return Math.sqrt(yieldingX + yieldingY);
+        compactIfSparse();
     }
 
-    private int getRed(int rgb) {
-        return getColor(rgb, RED);
-    }
+    /*
+    Resize current picture to the given width and height by inserting vertical and horizontal seams
+     */
+    public void enlargeTo(int targetWidth, int targetHeight) {
+        if (targetWidth < this.width) {
+            throw new IllegalArgumentException("Target width is invalid");
+        }
+        if (targetHeight < this.height) {
+            throw new IllegalArgumentException("Target height is invalid");
+        }
 
-    private int getGreen(int rgb) {
-        return getColor(rgb, GREEN);
+        // Inserting more than half of the seams at once would duplicate most of the picture,
+        // so large enlargements are done in several rounds
+        compact();
+        while (this.width < targetWidth) {
+            var count = Math.min(targetWidth - this.width, Math.max(this.width / 2, 1));
+            insertSeams(findDisjointSeams(count, true), true);
+        }
+        while (this.height < targetHeight) {
+            var count = Math.min(targetHeight - this.height, Math.max(this.height / 2, 1));
+            insertSeams(findDisjointSeams(count, false), false);
+        }
     }
 
-    private int getBlue(int rgb) {
-        return getColor(rgb, BLUE);
-    }
+    private static Pixels readPicture(Picture picture) {
+        if (picture == null) {
+            throw new IllegalArgumentException("Picture is not specified");
+        }
 
-    private int getColor(int rgb, int shift) {
-        return (rgb >> shift) & 0xFF;
+        var width = picture.width();
+        var height = picture.height();
+        var pixels = new int[height * width]; // Only picture colors are stored for optimization
+        for (var row = 0; row < height; row++) {
+            var offset = row * width;
+            for (var col = 0; col < width; col++) {
+                pixels[offset + col] = picture.getRGB(col, row);
+            }
+        }
+
+        return new Pixels(pixels, width, height);
     }
 
-    private void transpose() {
-        var transposedPictureColors = new int[this.width][this.height];
-        var transposedEnergy = new double[this.width][this.height];
-        for (var i = 0; i < this.height; i++) {
-            for (var j = 0; j < this.width; j++) {
-                transposedPictureColors[j][i] = this.pictureColors[i][j];
-                transposedEnergy[j][i] = this.energy[i][j];
+    private static Pixels readImage(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image is not specified");
+        }
+
+        var width = image.getWidth();
+        var height = image.getHeight();
+        var type = image.getType();
+        var raster = image.getRaster();
+        // Rows of the raster are copied at once only if they are packed one after another from the start
+        // of the buffer; a sub-image shares the raster of a larger one
+        if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getDataBuffer().getOffset() == 0
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == width
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && raster.getParent() == null) {
+            var data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            var pixels = Arrays.copyOf(data, width * height);
+            if (type == BufferedImage.TYPE_INT_RGB) {
+                // RGB rasters keep no alpha; pictures are opaque
+                for (var i = 0; i < pixels.length; i++) {
+                    pixels[i] |= 0xFF000000;
+                }
             }
+            return new Pixels(pixels, width, height);
         }
 
-        var temp = this.height;
-        this.height = this.width;
-        this.width = temp;
-        this.pictureColors = transposedPictureColors;
-        this.energy = transposedEnergy;
-        this.isTransposed = !this.isTransposed;
+        return new Pixels(image.getRGB(0, 0, width, height, null, 0, width), width, height);
     }
 
-    private int[] findSeam() {
-        var mainAxisSize = this.width; // Main axis is X
-        var anotherAxisSize = this.height;
+    private static Pixels copyPixels(int[] argb, int width, int height) {
+        if (argb == null) {
+            throw new IllegalArgumentException("Pixels are not specified");
+        }
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Picture size is invalid");
+        }
+        if (argb.length != width * height) {
+            throw new IllegalArgumentException("Pixels do not match picture size");
+        }
 
-        // Calculate the shortest path
-        var downwardDigraph = buildDigraph();
-        var minPath = findMinPath(downwardDigraph, mainAxisSize, anotherAxisSize);
+        return new Pixels(Arrays.copyOf(argb, argb.length), width, height);
+    }
 
-        // Calculate coordinates of the shortest path
-        return getMinPathCoordinates(minPath, mainAxisSize, anotherAxisSize);
+    private void markEnergyStale() {
+        this.dirtyWords = (this.stride + 63) >>> 6;
+        this.dirtyEnergy = new long[this.height * this.dirtyWords];
+        Arrays.fill(this.dirtyEnergy, -1L);
+        this.dirtyPixels = this.width * this.height;
     }
 
-    private EdgeWeightedDigraph buildDigraph() {
-        var count = this.width * this.height;
-        var digraph = new EdgeWeightedDigraph(count);
+    private void markEnergyDirty(int row, int fromCol, int toCol) {
+        for (var col = fromCol; col <= toCol; col++) {
+            this.dirtyEnergy[row * this.dirtyWords + (col >>> 6)] |= 1L << col;
+        }
+        this.dirtyPixels = Math.min(this.dirtyPixels + toCol - fromCol + 1, this.width * this.height);
+    }
 
-        for (var i = 0; i < count; i++) {
-            var coordinates = getCoordinates(i, this.width);
-            var energyValue = this.energy[coordinates[1]][coordinates[0]];
-            var vertices = getVertices(i);
-            for (var v : vertices) {
-                digraph.addEdge(new DirectedEdge(i, v, energyValue));
+    /*
+    Compute all out of date energies; rows are computed in parallel bands if many pixels may be out of date
+     */
+    private void refreshEnergy() {
+        if (this.dirtyPixels == 0) {
+            return;
+        }
+
+        if (SeamCarverStats.ENABLED) {
+            this.stats.begin(SeamCarverStats.Phase.ENERGY);
+        }
+        if (this.parallelism == 1 || this.dirtyPixels < PARALLEL_ENERGY_THRESHOLD) {
+            computeDirtyRows(0, this.height);
+        } else {
+            // Every pixel is computed independently, so bands give the same energies as the sequential loop
+            var task = new EnergyBand(0, this.height);
+            if (this.parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+                ForkJoinPool.commonPool().invoke(task);
+            } else {
+                ENERGY_POOLS.computeIfAbsent(this.parallelism, ForkJoinPool::new).invoke(task);
             }
         }
+        this.dirtyPixels = 0;
+        if (SeamCarverStats.ENABLED) {
+            this.stats.end(SeamCarverStats.Phase.ENERGY);
+        }
+    }
+
+    private void computeDirtyRows(int fromRow, int toRow) {
+        for (var row = fromRow; row < toRow; row++) {
+            computeDirtyEnergy(row, 0, this.dirtyWords - 1);
+        }
+    }
 
-        return digraph;
+    private void ensureEnergy(int row, int col) {
+        var word = col >>> 6;
+        if ((this.dirtyEnergy[row * this.dirtyWords + word] & (1L << col)) != 0) {
+            computeDirtyEnergy(row, word, word);
+        }
     }
 
-    private int[] getCoordinates(int v, int axisSize) {
-        var x = v % axisSize;
-        var y = v / axisSize;
-        return new int[]{x, y};
+    private void ensureEnergy(int row, int fromCol, int toCol) {
+        computeDirtyEnergy(row, fromCol >>> 6, toCol >>> 6);
     }
 
-    private int[] getVertices(int v) {
-        if (v / this.width >= this.height - 1) { // Check for the last 'row' pixel
-            return new int[0];
+    private void computeDirtyEnergy(int row, int fromWord, int toWord) {
+        // Every run of dirty pixels is computed at once, even if it spans several words; a whole dirty row is
+        // a single run
+        var offset = row * this.dirtyWords;
+        var runStart = -1;
+        for (var word = fromWord; word <= toWord; word++) {
+            var bits = this.dirtyEnergy[offset + word];
+            if (bits == 0 && runStart < 0) {
+                continue;
+            }
+
+            this.dirtyEnergy[offset + word] = 0;
+            var firstCol = word << 6;
+            var bit = 0;
+            while (bit < 64) {
+                var rest = bits >>> bit;
+                if (runStart < 0) {
+                    if (rest == 0) {
+                        break;
+                    }
+                    bit += Long.numberOfTrailingZeros(rest);
+                    runStart = firstCol + bit;
+                    continue;
+                }
+
+                // Bits shifted in past the word are not clean pixels, so a run reaching the end goes on
+                var clean = ~rest & (bit == 0 ? -1L : (1L << (64 - bit)) - 1);
+                if (clean == 0) {
+                    break;
+                }
+                bit += Long.numberOfTrailingZeros(clean);
+                computeEnergyRun(row, runStart, firstCol + bit);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            computeEnergyRun(row, runStart, (toWord + 1) << 6);
         }
+    }
 
-        if (this.width == 1) {
-            return new int[]{v + this.width};
+    private void computeEnergyRun(int row, int fromCol, int toCol) {
+        // Bits past the width are left over from removed seams; there are no pixels to compute
+        toCol = Math.min(toCol, this.width);
+        if (fromCol < toCol) {
+            this.energyFunction.computeRegion(this.pictureColors, this.stride, this.width, this.height,
+                    row, row + 1, fromCol, toCol, this.energy);
+        }
+    }
+
+    private void shiftSeam(int[] seam, boolean isVertical) {
+        var seamCost = isVertical ? this.verticalSeamCost : this.horizontalSeamCost;
+        var crossSeamCost = isVertical ? this.horizontalSeamCost : this.verticalSeamCost;
+
+        // Shift pixels, energies and seam costs after the seam towards it within the backing arrays
+        if (SeamCarverStats.ENABLED) {
+            this.stats.begin(SeamCarverStats.Phase.REMOVAL);
         }
+        shiftArray(this.pictureColors, seam, isVertical);
+        shiftArray(this.energy.array(), seam, isVertical);
+        shiftDirtyEnergy(seam, isVertical);
+        if (this.positions != null) {
+            shiftArray(this.positions, seam, isVertical);
+        }
+        seamCost.shift(seam);
+        crossSeamCost.invalidate();
 
-        var d = v % this.width;
-        if (d == 0) { // Handle the first 'column' pixel
-            var start = v + this.width;
-            return new int[]{start++, start};
-        } else if (d == this.width - 1) { // Handle the last 'column' pixel
-            var start = v + this.width - 1;
-            return new int[]{start++, start};
+        if (isVertical) {
+            this.width--;
         } else {
-            var start = v + this.width - 1;
-            return new int[]{start++, start++, start};
-        }
-    }
-
-    private Iterable<DirectedEdge> findMinPath(EdgeWeightedDigraph g, int axisSize, int anotherAxisSize) {
-        // Calculate vertices to check for the first and last axes
-        var endAxisFirstVertex = axisSize * (anotherAxisSize - 1);
-        var verticesToCheckCount = axisSize / 3 + (axisSize % 3 != 0 ? 1 : 0); // Check every third pixel
-        var startAxisVertices = new int[verticesToCheckCount];
-        var endAxisVertices = new int[verticesToCheckCount];
-
-        var vi = 0;
-        for (var v = 0; v < axisSize; v = v + 3) {
-            startAxisVertices[vi] = v;
-            endAxisVertices[vi++] = endAxisFirstVertex + v;
-        }
-
-        // Calculate the shortest path
-        var topological = getTopological(g);
-        var minDist = Double.POSITIVE_INFINITY;
-        var minPathIIndex = -1;
-        var minPathJIndex = -1;
-
-        for (var i = 0; i < verticesToCheckCount; i++) {
-            var acyclicShortestPath = new AcyclicShortestPath(g, topological, startAxisVertices[i]);
-            for (var j = 0; j < verticesToCheckCount; j++) {
-                var distTo = acyclicShortestPath.distTo(endAxisVertices[j]);
-                if (minDist > distTo) {
-                    minDist = distTo;
-                    minPathIIndex = i;
-                    minPathJIndex = j;
+            this.height--;
+        }
+
+        // Energies of pixels whose neighbourhood contained the removed pixels are out of date; they are
+        // recomputed once they are needed
+        var radius = this.energyFunction.radius();
+        var lastPixel = (isVertical ? this.width : this.height) - 1;
+        if (this.changedFrom.length < seam.length) {
+            this.changedFrom = new int[Math.max(this.width, this.height) + 1];
+            this.changedTo = new int[this.changedFrom.length];
+        }
+        var changedFrom = this.changedFrom;
+        var changedTo = this.changedTo;
+        for (var i = 0; i < seam.length; i++) {
+            var min = seam[i];
+            var max = seam[i];
+            for (var k = Math.max(i - radius, 0); k <= Math.min(i + radius, seam.length - 1); k++) {
+                min = Math.min(min, seam[k]);
+                max = Math.max(max, seam[k]);
+            }
+
+            changedFrom[i] = Math.max(min - radius, 0);
+            changedTo[i] = Math.min(max + radius - 1, lastPixel);
+            if (isVertical) {
+                markEnergyDirty(i, changedFrom[i], changedTo[i]);
+            } else {
+                for (var row = changedFrom[i]; row <= changedTo[i]; row++) {
+                    markEnergyDirty(row, i, i);
                 }
             }
         }
+        this.pyramid.repair(isVertical, changedFrom);
+
+        if (SeamCarverStats.ENABLED) {
+            this.stats.end(SeamCarverStats.Phase.REMOVAL);
+        }
 
-        var acyclicShortestPath = new AcyclicShortestPath(g, topological, startAxisVertices[minPathIIndex]);
-        return acyclicShortestPath.pathTo(endAxisVertices[minPathJIndex]);
+        seamCost.repair(seam, changedFrom, changedTo);
     }
 
-    private Topological getTopological(EdgeWeightedDigraph d) {
-        return new Topological(d);
+    private SeamSearchReport compareSeams(boolean isVertical, int corridor) {
+        validateCorridor(corridor);
+        var seamCost = isVertical ? this.verticalSeamCost : this.horizontalSeamCost;
+
+        // Energies are computed lazily, so they are computed before both searches and timed by neither
+        refreshEnergy();
+
+        // Exact seam costs are usually repaired incrementally, so they are computed from scratch to be timed
+        var start = System.nanoTime();
+        seamCost.invalidate();
+        var exactSeam = seamCost.findSeam();
+        var exactNanos = System.nanoTime() - start;
+
+        // Levels of the pyramid are also repaired after seam removal, so they are built from scratch as well
+        start = System.nanoTime();
+        this.pyramid.invalidate();
+        var approximateSeam = this.pyramid.findSeam(isVertical, corridor);
+        var approximateNanos = System.nanoTime() - start;
+
+        return new SeamSearchReport(corridor, getSeamCost(exactSeam, isVertical),
+                getSeamCost(approximateSeam, isVertical), exactNanos, approximateNanos);
     }
 
-    private int[] getMinPathCoordinates(Iterable<DirectedEdge> minPath, int mainAxisSize, int anotherAxisSize) {
-        var result = new int[anotherAxisSize];
+    private double getSeamCost(int[] seam, boolean isVertical) {
+        // Seams are compared by the costs both searches minimize, which are squared energies for integer precision
+        var seamCost = 0.0;
+        for (var i = 0; i < seam.length; i++) {
+            var row = isVertical ? i : seam[i];
+            var col = isVertical ? seam[i] : i;
+            ensureEnergy(row, col);
+            seamCost += this.energy.getCost(row * this.stride + col);
+        }
+
+        return seamCost;
+    }
 
-        var xCoordinateIndex = 0;
-        var i = 0;
-        for (var path : minPath) {
-            if (i < this.height - 2) {
-                var coordinatesFrom = getCoordinates(path.from(), mainAxisSize);
-                result[i] = coordinatesFrom[xCoordinateIndex];
-            } else if (i == this.height - 2) { // Both vertices from the last edge are needed
-                var coordinatesFrom = getCoordinates(path.from(), mainAxisSize);
-                var coordinatesTo = getCoordinates(path.to(), mainAxisSize);
-                result[i] = coordinatesFrom[xCoordinateIndex];
-                result[++i] = coordinatesTo[xCoordinateIndex];
-                break;
+    /*
+    Step at which every pixel of current picture is removed when it is carved down to a single column
+    (or row) by vertical (or horizontal) seams; pixels which are never removed get the last step
+     */
+    int[] findRemovalRanks(boolean isVertical) {
+        compact();
+        var shadow = createShadow(isVertical);
+        var lines = isVertical ? this.height : this.width;
+        var steps = (isVertical ? this.width : this.height) - 1;
+        var ranks = new int[this.width * this.height];
+        Arrays.fill(ranks, steps);
+        for (var s = 0; s < steps; s++) {
+            var seamCost = isVertical ? shadow.verticalSeamCost : shadow.horizontalSeamCost;
+            var seam = seamCost.findSeam();
+            for (var i = 0; i < lines; i++) {
+                var index = isVertical ? i * shadow.stride + seam[i] : seam[i] * shadow.stride + i;
+                var position = shadow.positions[index];
+                ranks[isVertical ? i * this.width + position : position * this.width + i] = s;
             }
-            i++;
+            shadow.shiftSeam(seam, isVertical);
         }
 
-        return result;
+        return ranks;
     }
 
-    private void removeSeam(int[] seam) {
-        validateSeam(seam, this.height, this.width);
+    private SeamCarver createShadow(boolean isVertical) {
+        // Seams are removed from a copy of the picture; positions of removed pixels in the current picture
+        // are tracked along with them
+        var pixels = new Pixels(Arrays.copyOf(this.pictureColors, this.pictureColors.length), this.width, this.height);
+        var shadow = new SeamCarver(pixels, this.parallelism, this.energy.precision(), this.energyFunction);
+        shadow.positions = new int[this.width * this.height];
+        for (var row = 0; row < this.height; row++) {
+            for (var col = 0; col < this.width; col++) {
+                shadow.positions[row * this.width + col] = isVertical ? col : row;
+            }
+        }
 
-        var oldWidth = this.width;
-        var newWidth = this.width - 1;
+        return shadow;
+    }
 
-        if (newWidth == 0) {
-            return;
+    private int[][] findDisjointSeams(int count, boolean isVertical) {
+        // Every next seam is searched on a copy without the previous ones, so seams do not overlap
+        var shadow = createShadow(isVertical);
+        var lines = isVertical ? this.height : this.width;
+        var result = new int[lines][count];
+        for (var s = 0; s < count; s++) {
+            var seamCost = isVertical ? shadow.verticalSeamCost : shadow.horizontalSeamCost;
+            var seam = seamCost.findSeam();
+            for (var i = 0; i < lines; i++) {
+                var index = isVertical ? i * shadow.stride + seam[i] : seam[i] * shadow.stride + i;
+                result[i][s] = shadow.positions[index];
+            }
+            if (s < count - 1) {
+                shadow.shiftSeam(seam, isVertical);
+            }
         }
 
-        // Copy picture's pixels to a new array
-        var resizedPicture = new int[this.height][newWidth];
-        for (var row = 0; row < this.height; row++) {
-            for (var col = 0; col < this.width; col++) {
-                if (seam[row] == col) {
-                    // First part of the array - before the seam
-                    System.arraycopy(this.pictureColors[row], 0, resizedPicture[row], 0, col);
-                    // Second part of the array - after the seam
-                    System.arraycopy(this.pictureColors[row], col + 1, resizedPicture[row], col, newWidth - col);
-                    break;
+        for (var line : result) {
+            Arrays.sort(line);
+        }
+        return result;
+    }
+
+    private void insertSeams(int[][] seams, boolean isVertical) {
+        if (SeamCarverStats.ENABLED) {
+            this.stats.begin(SeamCarverStats.Phase.INSERTION);
+        }
+        // Every seam pixel is followed by the average of it and its next neighbour in a single new array
+        var count = seams[0].length;
+        var newWidth = isVertical ? this.width + count : this.width;
+        var newHeight = isVertical ? this.height : this.height + count;
+        var lineLength = isVertical ? this.width : this.height;
+        var lineStride = isVertical ? this.stride : 1;
+        var pixelStride = isVertical ? 1 : this.stride;
+        var newLineStride = isVertical ? newWidth : 1;
+        var newPixelStride = isVertical ? 1 : newWidth;
+
+        var resizedPicture = new int[newWidth * newHeight];
+        for (var i = 0; i < seams.length; i++) {
+            var seam = seams[i];
+            var next = 0;
+            var index = i * newLineStride;
+            for (var j = 0; j < lineLength; j++) {
+                var rgb = this.pictureColors[i * lineStride + j * pixelStride];
+                resizedPicture[index] = rgb;
+                index += newPixelStride;
+
+                if (next < count && seam[next] == j) {
+                    var neighbour = j < lineLength - 1 ? j + 1 : Math.max(j - 1, 0);
+                    resizedPicture[index] = average(rgb, this.pictureColors[i * lineStride + neighbour * pixelStride]);
+                    index += newPixelStride;
+                    next++;
                 }
             }
         }
 
         this.pictureColors = resizedPicture;
         this.width = newWidth;
+        this.height = newHeight;
+        this.stride = newWidth;
+        this.energy.reset(newWidth * newHeight);
+        markEnergyStale();
+        this.verticalSeamCost.invalidate();
+        this.horizontalSeamCost.invalidate();
+        this.pyramid.invalidate();
+        if (SeamCarverStats.ENABLED) {
+            this.stats.end(SeamCarverStats.Phase.INSERTION);
+        }
+    }
 
-        // Copy energies to a new array
-        var lastRow = this.height - 1;
-        var resizedEnergy = new double[this.height][newWidth];
-        for (int row = 0; row < this.height; row++) {
-            if (row == 0 || row == lastRow) {
-                System.arraycopy(this.energy[row], 0, resizedEnergy[row], 0, newWidth);
-                continue;
+    private static int getSize(int size, int level) {
+        // Every level halves the finer one, rounding up
+        return ((size - 1) >> level) + 1;
+    }
+
+    private static int average(int argb1, int argb2) {
+        // Average of every 8-bit channel without unpacking them
+        return (argb1 & argb2) + (((argb1 ^ argb2) & 0xFEFEFEFE) >>> 1);
+    }
+
+    private void shiftArray(Object array, int[] seam, boolean isVertical) {
+        if (isVertical) {
+            // Shift the tail of every row one pixel to the left
+            var newWidth = this.width - 1;
+            for (var row = 0; row < this.height; row++) {
+                var offset = row * this.stride;
+                var col = seam[row];
+                System.arraycopy(array, offset + col + 1, array, offset + col, newWidth - col);
             }
-            for (var col = 0; col < oldWidth; col++) {
-                if (seam[row] == col) {
-                    // First part of the array - before the seam
-                    System.arraycopy(this.energy[row], 0, resizedEnergy[row], 0, Math.max(col - 1, 0));
-                    var col1 = Math.max(col - 1, 0); // Pixel before removed pixel in a resized array; handle the first column with max
-                    resizedEnergy[row][col1] = getEnergyInternal(col1, row);
-
-                    if (col != newWidth) { // Nothing to copy when the last column is removed
-                        // Second part of the array - after the seam
-                        System.arraycopy(this.energy[row], col + 2, resizedEnergy[row], col + 1, newWidth - col - 1);
-                        var col2 = Math.min(col, newWidth - 1); // Pixel after removed pixel in a resized array; handle the last column with min
-                        resizedEnergy[row][col2] = getEnergyInternal(col2, row);
+            return;
+        }
+
+        // Shift pixels below the seam one row up; on every row they form runs of columns
+        var minRow = this.height;
+        for (var row : seam) {
+            minRow = Math.min(minRow, row);
+        }
+
+        for (var row = minRow; row < this.height - 1; row++) {
+            var offset = row * this.stride;
+            var col = 0;
+            while (col < this.width) {
+                if (seam[col] > row) {
+                    col++;
+                    continue;
+                }
+
+                var start = col;
+                while (col < this.width && seam[col] <= row) {
+                    col++;
+                }
+                System.arraycopy(array, offset + this.stride + start, array, offset + start, col - start);
+            }
+        }
+    }
+
+    private void shiftDirtyEnergy(int[] seam, boolean isVertical) {
+        if (isVertical) {
+            // Shift bits after the seam one position towards it; bits past the width are never read
+            var lastWord = (this.width - 1) >>> 6;
+            for (var row = 0; row < this.height; row++) {
+                var offset = row * this.dirtyWords;
+                var col = seam[row];
+                for (var word = col >>> 6; word <= lastWord; word++) {
+                    var next = word < this.dirtyWords - 1 ? this.dirtyEnergy[offset + word + 1] : 0;
+                    var shifted = (this.dirtyEnergy[offset + word] >>> 1) | (next << 63);
+                    if (word == col >>> 6) {
+                        var kept = (1L << col) - 1;
+                        shifted = (this.dirtyEnergy[offset + word] & kept) | (shifted & ~kept);
                     }
-                    break;
+                    this.dirtyEnergy[offset + word] = shifted;
+                }
+            }
+            return;
+        }
+
+        // Copy bits of columns below the seam one row up; columns keep their positions within words
+        var minRow = this.height;
+        for (var row : seam) {
+            minRow = Math.min(minRow, row);
+        }
+
+        for (var row = minRow; row < this.height - 1; row++) {
+            var offset = row * this.dirtyWords;
+            for (var col = 0; col < this.width; col++) {
+                if (seam[col] <= row) {
+                    var word = offset + (col >>> 6);
+                    var bit = 1L << col;
+                    this.dirtyEnergy[word] = (this.dirtyEnergy[word] & ~bit)
+                            | (this.dirtyEnergy[word + this.dirtyWords] & bit);
                 }
             }
         }
+    }
+
+    private void compactIfSparse() {
+        var size = (long) this.width * this.height;
+        if (size * 100 < (long) this.pictureColors.length * (100 - MAX_WASTED_PERCENT)) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        // Trim the backing arrays to the current size once pixels were shifted in place
+        var size = this.width * this.height;
+        if (this.stride == this.width && this.pictureColors.length == size) {
+            return;
+        }
+
+        if (SeamCarverStats.ENABLED) {
+            this.stats.begin(SeamCarverStats.Phase.COMPACTION);
+        }
+        var resizedPicture = new int[size];
+        copyRows(this.pictureColors, resizedPicture);
+        this.energy.compact(this.height, this.width, this.stride);
+        this.verticalSeamCost.compact(size);
+        this.horizontalSeamCost.compact(size);
+
+        var dirtyWords = (this.width + 63) >>> 6;
+        var resizedDirtyEnergy = new long[this.height * dirtyWords];
+        for (var row = 0; row < this.height; row++) {
+            System.arraycopy(this.dirtyEnergy, row * this.dirtyWords, resizedDirtyEnergy, row * dirtyWords,
+                    dirtyWords);
+        }
 
-        this.energy = resizedEnergy;
+        this.pictureColors = resizedPicture;
+        this.stride = this.width;
+        this.dirtyEnergy = resizedDirtyEnergy;
+        this.dirtyWords = dirtyWords;
+        if (SeamCarverStats.ENABLED) {
+            this.stats.end(SeamCarverStats.Phase.COMPACTION);
+        }
     }
 
-    private void validateSeam(int[] seam, int axisSize, int anotherAxisSize) {
+    private void copyRows(Object src, Object dest) {
+        for (var row = 0; row < this.height; row++) {
+            System.arraycopy(src, row * this.stride, dest, row * this.width, this.width);
+        }
+    }
+
+    private void validateCorridor(int corridor) {
+        if (corridor < 1) {
+            throw new IllegalArgumentException("Corridor is invalid");
+        }
+    }
+
+    /*
+    Validate a seam going along the axis of the given size; MappedSeamCarver validates its seams the same way
+     */
+    static void validateSeam(int[] seam, int axisSize, int anotherAxisSize) {
         if (seam == null) {
             throw new IllegalArgumentException("Seam is not specified");
         }
@@ -405,6 +927,621 @@ public class SeamCarver {
         }
     }
 
+    /*
+    Row-major ARGB pixels of a picture
+     */
+    private static class Pixels {
+
+        private final int[] argb;
+        private final int width;
+        private final int height;
+
+        Pixels(int[] argb, int width, int height) {
+            this.argb = argb;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /*
+    Computes energies of a band of rows, splitting it between fork/join workers
+     */
+    private class EnergyBand extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final int fromRow;
+        private final int toRow;
+
+        EnergyBand(int fromRow, int toRow) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            var rows = this.toRow - this.fromRow;
+            if (rows == 1 || rows * width <= ENERGY_BAND_PIXELS) {
+                computeDirtyRows(this.fromRow, this.toRow);
+                return;
+            }
+
+            var middleRow = (this.fromRow + this.toRow) >>> 1;
+            invokeAll(new EnergyBand(this.fromRow, middleRow), new EnergyBand(middleRow, this.toRow));
+        }
+    }
+
+    /*
+    Cumulative seam costs for one orientation. Vertical seams go along rows and horizontal seams go along
+    columns of the same row-major storage, so both are walked through strides without transposing the picture.
+     */
+    private class SeamCost {
+
+        private final boolean isVertical;
+        private double[] distTo; // Cumulative energy of the cheapest seam ending at each pixel
+        private byte[] edgeTo; // Step to the parent pixel on the previous line: -1, 0 or 1
+        private boolean isValid;
+        private double seamEnergy; // Total energy of the last found seam
+        private int lineStride; // Index distance between consecutive lines the seam goes through
+        private int pixelStride; // Index distance between neighbour pixels on a line
+        private int lastPixel;
+
+        SeamCost(boolean isVertical) {
+            this.isVertical = isVertical;
+        }
+
+        int[] findSeam() {
+            prepare();
+            if (!this.isValid) {
+                compute();
+            }
+
+            if (SeamCarverStats.ENABLED) {
+                stats.begin(SeamCarverStats.Phase.SEAM_PATH);
+            }
+            var seam = getMinPathCoordinates();
+            if (SeamCarverStats.ENABLED) {
+                stats.end(SeamCarverStats.Phase.SEAM_PATH);
+            }
+            return seam;
+        }
+
+        void invalidate() {
+            this.isValid = false;
+        }
+
+        void shift(int[] seam) {
+            if (!this.isValid) {
+                return;
+            }
+
+            // Costs are shifted the same way as pixels; steps to parents stay valid away from the seam
+            shiftArray(this.distTo, seam, this.isVertical);
+            shiftArray(this.edgeTo, seam, this.isVertical);
+        }
+
+        void repair(int[] seam, int[] energyFrom, int[] energyTo) {
+            if (!this.isValid) {
+                return;
+            }
+            prepare();
+            if (SeamCarverStats.ENABLED) {
+                stats.begin(SeamCarverStats.Phase.SEAM_COST_REPAIR);
+            }
+
+            // Energies out of date after the removal are computed up front, so they are timed once per repair
+            if (SeamCarverStats.ENABLED) {
+                stats.begin(SeamCarverStats.Phase.ENERGY);
+            }
+            for (var i = 0; i < seam.length; i++) {
+                ensureLine(i, energyFrom[i], energyTo[i]);
+            }
+            if (SeamCarverStats.ENABLED) {
+                stats.end(SeamCarverStats.Phase.ENERGY);
+            }
+
+            // Only pixels next to the removed seam, pixels with new energies and pixels below already changed
+            // pixels can get a new cost
+            var changedFrom = Integer.MAX_VALUE;
+            var changedTo = Integer.MIN_VALUE;
+
+            ensureLine(0, energyFrom[0], energyTo[0]);
+            for (var j = energyFrom[0]; j <= energyTo[0]; j++) {
+                var index = j * this.pixelStride;
+                var cost = energy.getCost(index);
+                if (this.distTo[index] != cost) {
+                    this.distTo[index] = cost;
+                    changedFrom = Math.min(changedFrom, j);
+                    changedTo = j;
+                }
+            }
+
+            for (var i = 1; i < seam.length; i++) {
+                var from = Math.min(Math.min(seam[i - 1], seam[i]) - 1, energyFrom[i]);
+                var to = Math.max(Math.max(seam[i - 1], seam[i]) + 1, energyTo[i]);
+                if (changedFrom <= changedTo) {
+                    from = Math.min(from, changedFrom - 1);
+                    to = Math.max(to, changedTo + 1);
+                }
+
+                from = Math.max(from, 0);
+                to = Math.min(to, this.lastPixel);
+                ensureLine(i, from, to);
+
+                changedFrom = Integer.MAX_VALUE;
+                changedTo = Integer.MIN_VALUE;
+                for (var j = from; j <= to; j++) {
+                    var index = i * this.lineStride + j * this.pixelStride;
+                    var oldDist = this.distTo[index];
+                    relax(index, j);
+                    if (this.distTo[index] != oldDist) {
+                        changedFrom = Math.min(changedFrom, j);
+                        changedTo = j;
+                    }
+                }
+            }
+            if (SeamCarverStats.ENABLED) {
+                stats.end(SeamCarverStats.Phase.SEAM_COST_REPAIR);
+            }
+        }
+
+        void compact(int size) {
+            if (!this.isValid) {
+                this.distTo = null;
+                this.edgeTo = null;
+                return;
+            }
+
+            var resizedDistTo = new double[size];
+            copyRows(this.distTo, resizedDistTo);
+            var resizedEdgeTo = new byte[size];
+            copyRows(this.edgeTo, resizedEdgeTo);
+            this.distTo = resizedDistTo;
+            this.edgeTo = resizedEdgeTo;
+        }
+
+        private void prepare() {
+            this.lineStride = this.isVertical ? stride : 1;
+            this.pixelStride = this.isVertical ? 1 : stride;
+            this.lastPixel = (this.isVertical ? width : height) - 1;
+        }
+
+        private void compute() {
+            refreshEnergy();
+            if (SeamCarverStats.ENABLED) {
+                stats.begin(SeamCarverStats.Phase.SEAM_COST);
+            }
+            if (this.distTo == null || this.distTo.length != pictureColors.length) {
+                this.distTo = new double[pictureColors.length];
+                this.edgeTo = new byte[pictureColors.length];
+            }
+
+            // Relax pixels line by line
+            var lines = this.isVertical ? height : width;
+            for (var j = 0; j <= this.lastPixel; j++) {
+                var index = j * this.pixelStride;
+                this.distTo[index] = energy.getCost(index);
+            }
+
+            var workers = Math.min(parallelism, (this.lastPixel + 1) / SEAM_COST_STRIP_PIXELS);
+            if (workers > 1 && this.lastPixel + 1 >= PARALLEL_SEAM_COST_THRESHOLD) {
+                computeParallel(lines, workers);
+            } else {
+                relaxLines(lines, 0, this.lastPixel, null);
+            }
+
+            this.isValid = true;
+            if (SeamCarverStats.ENABLED) {
+                stats.end(SeamCarverStats.Phase.SEAM_COST);
+            }
+        }
+
+        private void computeParallel(int lines, int workers) {
+            // Pixels of a line depend only on the previous line, so every worker relaxes its own strip
+            // of each line and waits for the others on the phaser before going to the next line
+            var phaser = new Phaser(workers);
+            var futures = new ArrayList<Future<?>>(workers - 1);
+            for (var w = 1; w < workers; w++) {
+                var from = (this.lastPixel + 1) * w / workers;
+                var to = (this.lastPixel + 1) * (w + 1) / workers - 1;
+                futures.add(SEAM_COST_WORKERS.submit(() -> relaxLines(lines, from, to, phaser)));
+            }
+
+            relaxLines(lines, 0, (this.lastPixel + 1) / workers - 1, phaser);
+            try {
+                for (var future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Seam cost computation is interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Seam cost computation failed", e.getCause());
+            }
+        }
+
+        private void relaxLines(int lines, int fromPixel, int toPixel, Phaser phaser) {
+            try {
+                for (var i = 1; i < lines; i++) {
+                    var offset = i * this.lineStride;
+                    for (var j = fromPixel; j <= toPixel; j++) {
+                        relax(offset + j * this.pixelStride, j);
+                    }
+                    if (phaser != null) {
+                        phaser.arriveAndAwaitAdvance();
+                    }
+                }
+            } finally {
+                if (phaser != null) {
+                    phaser.arriveAndDeregister(); // Do not block other workers if this one fails
+                }
+            }
+        }
+
+        private void ensureLine(int line, int fromPixel, int toPixel) {
+            if (this.isVertical) {
+                ensureEnergy(line, fromPixel, toPixel);
+                return;
+            }
+
+            for (var j = fromPixel; j <= toPixel; j++) {
+                ensureEnergy(j, line);
+            }
+        }
+
+        private void relax(int index, int j) {
+            var parent = index - this.lineStride;
+            var step = 0;
+            var minDist = this.distTo[parent];
+            if (j > 0 && this.distTo[parent - this.pixelStride] <= minDist) {
+                step = -1;
+                minDist = this.distTo[parent - this.pixelStride];
+            }
+            if (j < this.lastPixel && this.distTo[parent + this.pixelStride] < minDist) {
+                step = 1;
+                minDist = this.distTo[parent + this.pixelStride];
+            }
+
+            this.distTo[index] = minDist + energy.getCost(index);
+            this.edgeTo[index] = (byte) step;
+        }
+
+        private int[] getMinPathCoordinates() {
+            // Find the end of the shortest path on the last line
+            var lastLine = (this.isVertical ? height : width) - 1;
+            var offset = lastLine * this.lineStride;
+            var minPixel = 0;
+            for (var j = 1; j <= this.lastPixel; j++) {
+                if (this.distTo[offset + j * this.pixelStride] < this.distTo[offset + minPixel * this.pixelStride]) {
+                    minPixel = j;
+                }
+            }
+            this.seamEnergy = this.distTo[offset + minPixel * this.pixelStride];
+
+            // Walk the shortest path back to the first line
+            var result = new int[lastLine + 1];
+            result[lastLine] = minPixel;
+            for (var i = lastLine; i > 0; i--) {
+                result[i - 1] = result[i] + this.edgeTo[i * this.lineStride + result[i] * this.pixelStride];
+            }
+
+            return result;
+        }
+    }
+
+    /*
+    Pyramid of energies shared by both orientations. Every coarser level sums costs of 2x2 blocks of the finer
+    one; the seam found on the coarsest level is projected to the finer level and searched again only within
+    a corridor around it. Levels are kept between searches; after a seam is removed, only blocks from the first
+    changed pixel to the end of every line are summed again. A seam can also be searched only around a given
+    one, without coarser levels.
+     */
+    private class SeamPyramid {
+
+        private double[][] levels; // Row-major block sums; energies of the picture are level 0
+        private int[] levelStrides; // Row length of every level at the time it was built
+        private boolean isValid;
+        private int[] blockFrom = new int[0]; // First changed block of every block line after removal
+        private boolean isVertical; // Orientation of the current search
+        private int lineStride;
+        private int pixelStride;
+
+        void invalidate() {
+            this.isValid = false;
+        }
+
+        int[] findSeamNear(boolean isVertical, int[] seam, int corridor) {
+            if (SeamCarverStats.ENABLED) {
+                stats.begin(SeamCarverStats.Phase.APPROXIMATE_SEAM);
+            }
+            prepare(isVertical);
+            var lastPixel = getPixels(0) - 1;
+            var from = new int[seam.length];
+            var to = new int[seam.length];
+            for (var i = 0; i < seam.length; i++) {
+                from[i] = Math.max(seam[i] - corridor, 0);
+                to[i] = Math.min(seam[i] + corridor, lastPixel);
+            }
+
+            var result = findSeam(0, from, to);
+            if (SeamCarverStats.ENABLED) {
+                stats.end(SeamCarverStats.Phase.APPROXIMATE_SEAM);
+            }
+            return result;
+        }
+
+        int[] findSeam(boolean isVertical, int corridor) {
+            if (SeamCarverStats.ENABLED) {
+                stats.begin(SeamCarverStats.Phase.APPROXIMATE_SEAM);
+            }
+            if (!this.isValid) {
+                build();
+            }
+            prepare(isVertical);
+
+            // Lines of the coarsest level searched are not shorter than PYRAMID_MIN_PIXELS
+            var coarsest = 0;
+            var lines = getLines(0);
+            var pixels = getPixels(0);
+            while (coarsest + 1 < this.levels.length && pixels > PYRAMID_MIN_PIXELS && lines > 1) {
+                pixels = (pixels + 1) / 2;
+                lines = (lines + 1) / 2;
+                coarsest++;
+            }
+
+            var from = new int[lines];
+            var to = new int[lines];
+            Arrays.fill(to, pixels - 1);
+            var seam = findSeam(coarsest, from, to);
+
+            for (var level = coarsest - 1; level >= 0; level--) {
+                lines = getLines(level);
+                var lastPixel = getPixels(level) - 1;
+                from = new int[lines];
+                to = new int[lines];
+                for (var i = 0; i < lines; i++) {
+                    var pixel = 2 * seam[i / 2];
+                    from[i] = Math.max(pixel - corridor, 0);
+                    to[i] = Math.min(pixel + 1 + corridor, lastPixel);
+                }
+                seam = findSeam(level, from, to);
+            }
+
+            if (SeamCarverStats.ENABLED) {
+                stats.end(SeamCarverStats.Phase.APPROXIMATE_SEAM);
+            }
+            return seam;
+        }
+
+        /*
+        Sum blocks again after a seam was removed; changedFrom holds the first pixel of every line of the seam
+        whose energy was changed or which was shifted
+         */
+        void repair(boolean isVertical, int[] changedFrom) {
+            if (!this.isValid || this.levels.length == 1) {
+                return;
+            }
+
+            // Lines of the removed seam are rows for vertical seams and columns for horizontal seams
+            var lines = isVertical ? height : width;
+            var blockLines = getSize(lines, 1);
+            if (this.blockFrom.length < blockLines) {
+                this.blockFrom = new int[blockLines];
+            }
+            var blockFrom = this.blockFrom;
+            for (var k = 0; k < blockLines; k++) {
+                var first = changedFrom[2 * k];
+                if (2 * k + 1 < lines) {
+                    first = Math.min(first, changedFrom[2 * k + 1]);
+                }
+                blockFrom[k] = first >> 1;
+            }
+
+            refreshEnergy(); // Energies near the seam are summed again anyway, so they are computed at once
+            sumEnergies(isVertical, blockFrom, blockLines);
+            for (var level = 2; level < this.levels.length; level++) {
+                var finerBlockLines = blockLines;
+                blockLines = getSize(lines, level);
+                for (var k = 0; k < blockLines; k++) {
+                    var first = blockFrom[2 * k];
+                    if (2 * k + 1 < finerBlockLines) {
+                        first = Math.min(first, blockFrom[2 * k + 1]);
+                    }
+                    blockFrom[k] = first >> 1;
+                }
+                sumBlocks(level, isVertical, blockFrom, blockLines);
+            }
+        }
+
+        private void build() {
+            refreshEnergy(); // Level 1 is built of all energies
+            var rows = height;
+            var cols = width;
+            var count = 1;
+            while (Math.max(rows, cols) > PYRAMID_MIN_PIXELS && Math.min(rows, cols) > 1) {
+                rows = (rows + 1) / 2;
+                cols = (cols + 1) / 2;
+                count++;
+            }
+
+            this.levels = new double[count][];
+            this.levelStrides = new int[count];
+            for (var level = 1; level < count; level++) {
+                this.levelStrides[level] = getSize(width, level);
+                this.levels[level] = new double[getSize(height, level) * this.levelStrides[level]];
+            }
+
+            // Every block line is summed from its start
+            var blockLines = getSize(height, 1);
+            if (this.blockFrom.length < blockLines) {
+                this.blockFrom = new int[blockLines];
+            }
+            Arrays.fill(this.blockFrom, 0);
+            if (count > 1) {
+                sumEnergies(true, this.blockFrom, blockLines);
+            }
+            for (var level = 2; level < count; level++) {
+                sumBlocks(level, true, this.blockFrom, getSize(height, level));
+            }
+
+            this.isValid = true;
+        }
+
+        private void sumEnergies(boolean isVertical, int[] blockFrom, int blockLines) {
+            // Energies are up to date and read row by row in the order they are stored
+            var blocks = this.levels[1];
+            var blockStride = this.levelStrides[1];
+            var blockRows = getSize(height, 1);
+            var blockCols = getSize(width, 1);
+            if (isVertical) {
+                for (var k = 0; k < blockLines; k++) {
+                    if (blockFrom[k] >= blockCols) {
+                        continue;
+                    }
+
+                    Arrays.fill(blocks, k * blockStride + blockFrom[k], k * blockStride + blockCols, 0);
+                    for (var row = 2 * k; row < Math.min(2 * k + 2, height); row++) {
+                        var fromCol = 2 * blockFrom[k];
+                        var offset = row * stride;
+                        for (var col = fromCol; col < width; col++) {
+                            blocks[k * blockStride + (col >> 1)] += energy.getCost(offset + col);
+                        }
+                    }
+                }
+                return;
+            }
+
+            var firstBlockRow = blockRows;
+            for (var k = 0; k < blockLines; k++) {
+                firstBlockRow = Math.min(firstBlockRow, blockFrom[k]);
+                for (var b = blockFrom[k]; b < blockRows; b++) {
+                    blocks[b * blockStride + k] = 0;
+                }
+            }
+            for (var row = 2 * firstBlockRow; row < height; row++) {
+                var b = row >> 1;
+                var offset = row * stride;
+                for (var col = 0; col < width; col++) {
+                    if (b >= blockFrom[col >> 1]) {
+                        blocks[b * blockStride + (col >> 1)] += energy.getCost(offset + col);
+                    }
+                }
+            }
+        }
+
+        private void sumBlocks(int level, boolean isVertical, int[] blockFrom, int blockLines) {
+            var blocks = this.levels[level];
+            var blockStride = this.levelStrides[level];
+            var finer = this.levels[level - 1];
+            var finerStride = this.levelStrides[level - 1];
+            var finerRows = getSize(height, level - 1);
+            var finerCols = getSize(width, level - 1);
+            var blockPixels = isVertical ? getSize(width, level) : getSize(height, level);
+            for (var k = 0; k < blockLines; k++) {
+                for (var p = blockFrom[k]; p < blockPixels; p++) {
+                    var row = isVertical ? k : p;
+                    var col = isVertical ? p : k;
+                    var index = 2 * row * finerStride + 2 * col;
+                    var sum = finer[index];
+                    if (2 * col + 1 < finerCols) {
+                        sum += finer[index + 1];
+                    }
+                    if (2 * row + 1 < finerRows) {
+                        sum += finer[index + finerStride];
+                        if (2 * col + 1 < finerCols) {
+                            sum += finer[index + finerStride + 1];
+                        }
+                    }
+                    blocks[row * blockStride + col] = sum;
+                }
+            }
+        }
+
+        private void prepare(boolean isVertical) {
+            this.isVertical = isVertical;
+            this.lineStride = isVertical ? stride : 1;
+            this.pixelStride = isVertical ? 1 : stride;
+        }
+
+        private int getLines(int level) {
+            return getSize(this.isVertical ? height : width, level);
+        }
+
+        private int getPixels(int level) {
+            return getSize(this.isVertical ? width : height, level);
+        }
+
+        private double getCost(int level, int line, int pixel) {
+            if (level == 0) {
+                // A search near a given seam computes only energies within the corridor
+                if (this.isVertical) {
+                    ensureEnergy(line, pixel);
+                } else {
+                    ensureEnergy(pixel, line);
+                }
+                return energy.getCost(line * this.lineStride + pixel * this.pixelStride);
+            }
+
+            return this.isVertical
+                    ? this.levels[level][line * this.levelStrides[level] + pixel]
+                    : this.levels[level][pixel * this.levelStrides[level] + line];
+        }
+
+        private int[] findSeam(int level, int[] from, int[] to) {
+            // Relax pixels line by line within the corridor; parents outside of it are unreachable
+            var lines = getLines(level);
+            var corridorWidth = 0;
+            for (var i = 0; i < lines; i++) {
+                corridorWidth = Math.max(corridorWidth, to[i] - from[i] + 1);
+            }
+
+            var distTo = new double[lines * corridorWidth];
+            var edgeTo = new byte[lines * corridorWidth];
+            for (var j = from[0]; j <= to[0]; j++) {
+                distTo[j - from[0]] = getCost(level, 0, j);
+            }
+
+            for (var i = 1; i < lines; i++) {
+                var offset = i * corridorWidth - from[i];
+                var parentOffset = (i - 1) * corridorWidth - from[i - 1];
+                for (var j = from[i]; j <= to[i]; j++) {
+                    var step = 0;
+                    var minDist = j >= from[i - 1] && j <= to[i - 1]
+                            ? distTo[parentOffset + j]
+                            : Double.POSITIVE_INFINITY;
+                    if (j - 1 >= from[i - 1] && j - 1 <= to[i - 1] && distTo[parentOffset + j - 1] <= minDist) {
+                        step = -1;
+                        minDist = distTo[parentOffset + j - 1];
+                    }
+                    if (j + 1 >= from[i - 1] && j + 1 <= to[i - 1] && distTo[parentOffset + j + 1] < minDist) {
+                        step = 1;
+                        minDist = distTo[parentOffset + j + 1];
+                    }
+
+                    distTo[offset + j] = minDist + getCost(level, i, j);
+                    edgeTo[offset + j] = (byte) step;
+                }
+            }
+
+            // Walk the shortest path back to the first line
+            var lastLine = lines - 1;
+            var offset = lastLine * corridorWidth - from[lastLine];
+            var minPixel = from[lastLine];
+            for (var j = from[lastLine] + 1; j <= to[lastLine]; j++) {
+                if (distTo[offset + j] < distTo[offset + minPixel]) {
+                    minPixel = j;
+                }
+            }
+
+            var result = new int[lines];
+            result[lastLine] = minPixel;
+            for (var i = lastLine; i > 0; i--) {
+                result[i - 1] = result[i] + edgeTo[i * corridorWidth - from[i] + result[i]];
+            }
+
+            return result;
+        }
+    }
+
     public static void main(String[] args) {
         var pic = new Picture("6x5.png");
         var seamCarver = new SeamCarver(pic);
@@ -0,0 +1,224 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac SeamCarverStats.java
+ *  Execution:     none
+ *
+ *  Time, count and allocated bytes of every phase of the seam carver.
+ *  Statistics are collected only if the JVM is started with
+ *  -Dseamcarver.stats=true; otherwise the checks of the constant flag
+ *  are removed by the JIT compiler. Every finished phase is also
+ *  committed as a JFR event while a recording is running. JFR and the
+ *  thread management bean are touched only by the Probes holder, which is
+ *  not initialized unless statistics are collected.
+ *
+ *----------------------------------------------------------------*/
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.lang.management.ManagementFactory;
+
+public final class SeamCarverStats {
+    static final boolean ENABLED = Boolean.getBoolean("seamcarver.stats");
+    private final long[] nanos = new long[Phase.values().length];
+    private final long[] counts = new long[Phase.values().length];
+    private final long[] bytes = new long[Phase.values().length];
+    private final long[] startNanos = new long[Phase.values().length];
+    private final long[] startBytes = new long[Phase.values().length];
+    private final Object[] events = new Object[Phase.values().length]; // Running JFR events
+
+    /*
+    Phases of the seam carver; phases may nest, so energies computed while seam costs are repaired are counted
+    in both phases. Energies read one at a time, by energy() or by a search within a corridor, are counted only
+    in the phase reading them.
+     */
+    public enum Phase {
+        /**
+         * Out of date energies computed by a refresh before a search or by a repair of seam costs
+         */
+        ENERGY,
+
+        /**
+         * Cumulative seam costs of the whole picture
+         */
+        SEAM_COST,
+
+        /**
+         * Seam costs repaired after a seam is removed
+         */
+        SEAM_COST_REPAIR,
+
+        /**
+         * Walk of the cheapest seam back from the last line
+         */
+        SEAM_PATH,
+
+        /**
+         * Seam searched on a pyramid or within a corridor
+         */
+        APPROXIMATE_SEAM,
+
+        /**
+         * Pixels, energies and seam costs shifted over a removed seam
+         */
+        REMOVAL,
+
+        /**
+         * Backing arrays trimmed to the picture size
+         */
+        COMPACTION,
+
+        /**
+         * Seams inserted into the picture
+         */
+        INSERTION
+    }
+
+    void begin(Phase phase) {
+        // The event is created before allocations are counted, so it is not counted in the phase
+        var i = phase.ordinal();
+        this.events[i] = Probes.beginEvent();
+        this.startBytes[i] = Probes.getAllocatedBytes();
+        this.startNanos[i] = System.nanoTime();
+    }
+
+    void end(Phase phase) {
+        var i = phase.ordinal();
+        var elapsed = System.nanoTime() - this.startNanos[i];
+        var allocated = Probes.getAllocatedBytes() - this.startBytes[i];
+        this.nanos[i] += elapsed;
+        this.counts[i]++;
+        this.bytes[i] += allocated;
+
+        var event = this.events[i];
+        if (event != null) {
+            this.events[i] = null;
+            Probes.commitEvent(event, phase, allocated);
+        }
+    }
+
+    /*
+    Copy of the statistics collected so far
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this.nanos.clone(), this.counts.clone(), this.bytes.clone());
+    }
+
+    /*
+    Statistics of a seam carver which does not collect them
+     */
+    static Snapshot empty() {
+        var phases = Phase.values().length;
+        return new Snapshot(new long[phases], new long[phases], new long[phases]);
+    }
+
+    /*
+    Holder of JFR and the thread management bean; it is initialized by the first phase, so a seam carver which
+    does not collect statistics never registers the event nor looks the bean up
+     */
+    private static final class Probes {
+        private static final com.sun.management.ThreadMXBean THREADS = getThreads();
+        private static final EventType PHASE_EVENT = EventType.getEventType(PhaseEvent.class);
+
+        static Object beginEvent() {
+            if (!PHASE_EVENT.isEnabled()) {
+                return null;
+            }
+
+            var event = new PhaseEvent();
+            event.begin();
+            return event;
+        }
+
+        static void commitEvent(Object started, Phase phase, long allocated) {
+            var event = (PhaseEvent) started;
+            event.phase = phase.name();
+            event.allocatedBytes = allocated;
+            event.commit();
+        }
+
+        static long getAllocatedBytes() {
+            // Only allocations of the calling thread are counted; fork/join workers computing energies are not
+            return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        private static com.sun.management.ThreadMXBean getThreads() {
+            var threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+                return (com.sun.management.ThreadMXBean) threads;
+            }
+
+            return null;
+        }
+    }
+
+    /*
+    Immutable statistics of every phase
+     */
+    public static final class Snapshot {
+
+        private final long[] nanos;
+        private final long[] counts;
+        private final long[] bytes;
+
+        private Snapshot(long[] nanos, long[] counts, long[] bytes) {
+            this.nanos = nanos;
+            this.counts = counts;
+            this.bytes = bytes;
+        }
+
+        /*
+        Total time spent in the given phase
+         */
+        public long nanos(Phase phase) {
+            return this.nanos[phase.ordinal()];
+        }
+
+        /*
+        Number of times the given phase was run
+         */
+        public long count(Phase phase) {
+            return this.counts[phase.ordinal()];
+        }
+
+        /*
+        Bytes allocated by the calling thread in the given phase
+         */
+        public long bytes(Phase phase) {
+            return this.bytes[phase.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            var result = new StringBuilder();
+            for (var phase : Phase.values()) {
+                var i = phase.ordinal();
+                result.append(String.format("%-16s %10d calls %12.3f ms %14d bytes%n", phase,
+                        this.counts[i], this.nanos[i] / 1e6, this.bytes[i]));
+            }
+
+            return result.toString();
+        }
+    }
+
+    @Name("seamcarver.Phase")
+    @Label("Seam Carver Phase")
+    @Category("Seam Carver")
+    @Description("Phase of the seam carver with bytes allocated by its thread")
+    static final class PhaseEvent extends Event {
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated Bytes")
+        long allocatedBytes;
+    }
+}
@@ -0,0 +1,216 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac SeamOrderIndex.java
+ *  Execution:     none
+ *
+ *  Order in which seams remove pixels of a picture. Once it is built,
+ *  the picture is carved to any width (or height) in one linear pass
+ *  by keeping pixels removed later than the seams to drop.
+ *
+ *----------------------------------------------------------------*/
+
+import edu.princeton.cs.algs4.Picture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class SeamOrderIndex {
+    private static final int MAGIC = 0x53434F49; // "SCOI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + 1; // Magic, version, width, height and orientation
+    private final boolean isVertical;
+    private final int width;
+    private final int height;
+    private final int[] ranks; // Row-major step at which every pixel is removed
+
+    /*
+    Build the index of the current picture of the given seam carver; vertical seams give an index for
+    target widths, horizontal seams give an index for target heights
+     */
+    public SeamOrderIndex(SeamCarver seamCarver, boolean isVertical) {
+        if (seamCarver == null) {
+            throw new IllegalArgumentException("Seam carver is not specified");
+        }
+
+        this.isVertical = isVertical;
+        this.width = seamCarver.width();
+        this.height = seamCarver.height();
+        this.ranks = seamCarver.findRemovalRanks(isVertical);
+    }
+
+    private SeamOrderIndex(boolean isVertical, int width, int height, int[] ranks) {
+        this.isVertical = isVertical;
+        this.width = width;
+        this.height = height;
+        this.ranks = ranks;
+    }
+
+    /*
+    Read an index written by write
+     */
+    public static SeamOrderIndex read(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File is not specified");
+        }
+
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("File is not a seam order index");
+            }
+
+            var isVertical = input.readBoolean();
+            var width = input.readInt();
+            var height = input.readInt();
+            // A corrupt header must not overflow the size nor allocate more ranks than the file holds
+            var pixels = (long) width * height;
+            if (width < 1 || height < 1 || pixels > Integer.MAX_VALUE) {
+                throw new IOException("Picture size is invalid: " + width + "x" + height);
+            }
+            if (Files.size(file) != HEADER_BYTES + pixels * Integer.BYTES) {
+                throw new IOException("File size does not match picture size " + width + "x" + height);
+            }
+
+            var ranks = new int[(int) pixels];
+            for (var i = 0; i < ranks.length; i++) {
+                ranks[i] = input.readInt();
+            }
+            return new SeamOrderIndex(isVertical, width, height, ranks);
+        }
+    }
+
+    /*
+    Write the index to the given file, for example next to the picture it was built for
+     */
+    public void write(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File is not specified");
+        }
+
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeBoolean(this.isVertical);
+            output.writeInt(this.width);
+            output.writeInt(this.height);
+            for (var rank : this.ranks) {
+                output.writeInt(rank);
+            }
+        }
+    }
+
+    /*
+    True if the index retargets widths, false if it retargets heights
+     */
+    public boolean isVertical() {
+        return this.isVertical;
+    }
+
+    /*
+    Width of the indexed picture
+     */
+    public int width() {
+        return this.width;
+    }
+
+    /*
+    Height of the indexed picture
+     */
+    public int height() {
+        return this.height;
+    }
+
+    /*
+    Step at which pixel at column x and row y is removed
+     */
+    public int rank(int x, int y) {
+        if (x < 0 ||
+                y < 0 ||
+                x > (this.width - 1) ||
+                y > (this.height - 1)) {
+            throw new IllegalArgumentException("Invalid coordinates");
+        }
+
+        return this.ranks[y * this.width + x];
+    }
+
+    /*
+    Row-major ARGB pixels of the indexed picture carved to the given width (or height)
+     */
+    public int[] retarget(int[] argb, int size) {
+        if (argb == null) {
+            throw new IllegalArgumentException("Pixels are not specified");
+        }
+        if (argb.length != this.ranks.length) {
+            throw new IllegalArgumentException("Pixels do not match picture size");
+        }
+        if (size < 1 || size > (this.isVertical ? this.width : this.height)) {
+            throw new IllegalArgumentException("Target size is invalid");
+        }
+
+        // Every seam removes one pixel of each row (or column), so each of them keeps exactly size pixels
+        // in their original order
+        var removed = (this.isVertical ? this.width : this.height) - size;
+        var newWidth = this.isVertical ? size : this.width;
+        var result = new int[newWidth * (this.isVertical ? this.height : size)];
+        if (this.isVertical) {
+            var index = 0;
+            for (var i = 0; i < argb.length; i++) {
+                if (this.ranks[i] >= removed) {
+                    result[index++] = argb[i];
+                }
+            }
+            return result;
+        }
+
+        var nextRow = new int[this.width];
+        for (var row = 0; row < this.height; row++) {
+            var offset = row * this.width;
+            for (var col = 0; col < this.width; col++) {
+                if (this.ranks[offset + col] >= removed) {
+                    result[nextRow[col]++ * newWidth + col] = argb[offset + col];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /*
+    Indexed picture carved to the given width (or height)
+     */
+    public Picture retarget(Picture picture, int size) {
+        if (picture == null) {
+            throw new IllegalArgumentException("Picture is not specified");
+        }
+        if (picture.width() != this.width || picture.height() != this.height) {
+            throw new IllegalArgumentException("Picture does not match index size");
+        }
+
+        var argb = new int[this.width * this.height];
+        for (var row = 0; row < this.height; row++) {
+            for (var col = 0; col < this.width; col++) {
+                argb[row * this.width + col] = picture.getRGB(col, row);
+            }
+        }
+
+        var newWidth = this.isVertical ? size : this.width;
+        var newHeight = this.isVertical ? this.height : size;
+        var pixels = retarget(argb, size);
+        var result = new Picture(newWidth, newHeight);
+        for (var row = 0; row < newHeight; row++) {
+            for (var col = 0; col < newWidth; col++) {
+                result.setRGB(col, row, pixels[row * newWidth + col]);
+            }
+        }
+
+        return result;
+    }
+}
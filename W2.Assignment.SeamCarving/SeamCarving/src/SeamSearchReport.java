@@ -0,0 +1,88 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac SeamSearchReport.java
+ *  Execution:     none
+ *
+ *  Cost and search time of an approximate seam compared to
+ *  the exact seam of the same picture
+ *
+ *----------------------------------------------------------------*/
+
+public final class SeamSearchReport {
+
+    private final int corridor;
+    private final double exactEnergy;
+    private final double approximateEnergy;
+    private final long exactNanos;
+    private final long approximateNanos;
+
+    SeamSearchReport(int corridor, double exactEnergy, double approximateEnergy, long exactNanos,
+                     long approximateNanos) {
+        this.corridor = corridor;
+        this.exactEnergy = exactEnergy;
+        this.approximateEnergy = approximateEnergy;
+        this.exactNanos = exactNanos;
+        this.approximateNanos = approximateNanos;
+    }
+
+    /**
+     * Corridor around the projected coarse seam the approximate seam was searched in
+     */
+    public int corridor() {
+        return this.corridor;
+    }
+
+    /**
+     * Total cost of the exact seam as the search minimizes it: the sum of energies, or of squared energies
+     * for SQUARED_INTEGER precision
+     */
+    public double exactEnergy() {
+        return this.exactEnergy;
+    }
+
+    /**
+     * Total cost of the approximate seam, summed the same way as the exact one; it is never lower than the
+     * exact one
+     */
+    public double approximateEnergy() {
+        return this.approximateEnergy;
+    }
+
+    /**
+     * Time of a full search of the exact seam
+     */
+    public long exactNanos() {
+        return this.exactNanos;
+    }
+
+    /**
+     * Time of the search of the approximate seam
+     */
+    public long approximateNanos() {
+        return this.approximateNanos;
+    }
+
+    /**
+     * Cost of the approximate seam above the exact one, relative to the exact one; it is never negative
+     */
+    public double relativeError() {
+        return this.exactEnergy == 0 ? 0 : (this.approximateEnergy - this.exactEnergy) / this.exactEnergy;
+    }
+
+    /**
+     * How many times the approximate search is faster than the exact one
+     */
+    public double speedup() {
+        return (double) this.exactNanos / Math.max(this.approximateNanos, 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("corridor %d: exact %.1f in %.3f ms, approximate %.1f in %.3f ms, " +
+                        "error %.2f%%, speedup %.1fx", this.corridor, this.exactEnergy, this.exactNanos / 1e6,
+                this.approximateEnergy, this.approximateNanos / 1e6, relativeError() * 100, speedup());
+    }
+}
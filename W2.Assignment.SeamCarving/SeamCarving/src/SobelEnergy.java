@@ -0,0 +1,57 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac SobelEnergy.java
+ *  Execution:     none
+ *
+ *  Sobel gradient magnitude summed over color channels; pixels
+ *  outside the picture repeat the nearest border pixel
+ *
+ *----------------------------------------------------------------*/
+
+public class SobelEnergy implements EnergyFunction {
+
+    private static final int[] SHIFTS = {16, 8, 0};
+
+    @Override
+    public int radius() {
+        return 1;
+    }
+
+    @Override
+    public void computeRow(int[] pixels, int stride, int width, int height, int row, int fromCol, int toCol,
+                           EnergyMap energy) {
+        var above = Math.max(row - 1, 0) * stride;
+        var current = row * stride;
+        var below = Math.min(row + 1, height - 1) * stride;
+
+        for (var col = fromCol; col < toCol; col++) {
+            var left = Math.max(col - 1, 0);
+            var right = Math.min(col + 1, width - 1);
+
+            var squared = 0;
+            for (var shift : SHIFTS) {
+                var topLeft = channel(pixels[above + left], shift);
+                var top = channel(pixels[above + col], shift);
+                var topRight = channel(pixels[above + right], shift);
+                var midLeft = channel(pixels[current + left], shift);
+                var midRight = channel(pixels[current + right], shift);
+                var bottomLeft = channel(pixels[below + left], shift);
+                var bottom = channel(pixels[below + col], shift);
+                var bottomRight = channel(pixels[below + right], shift);
+
+                var gx = (topRight + 2 * midRight + bottomRight) - (topLeft + 2 * midLeft + bottomLeft);
+                var gy = (bottomLeft + 2 * bottom + bottomRight) - (topLeft + 2 * top + topRight);
+                squared += gx * gx + gy * gy;
+            }
+
+            energy.setSquared(current + col, squared);
+        }
+    }
+
+    private static int channel(int rgb, int shift) {
+        return (rgb >> shift) & 0xFF;
+    }
+}
@@ -0,0 +1,133 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac -cp algs4.jar:jmh/*:../SeamCarving/src SeamCarverBenchmarkCarvers.java
+ *  Execution:     none
+ *
+ *  Pictures and carvers for benchmarks.SeamCarverBenchmark, which
+ *  cannot import classes of the default package
+ *
+ *----------------------------------------------------------------*/
+
+import benchmarks.SeamCarverBenchmark.Carver;
+import benchmarks.SeamCarverBenchmark.CarverFactory;
+import edu.princeton.cs.algs4.Picture;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public final class SeamCarverBenchmarkCarvers implements CarverFactory {
+
+    @Override
+    public Picture readPicture(String picture) {
+        // Pictures are read from the seamcarver.pictures directory, ../SeamCarving by default
+        var directory = Paths.get(System.getProperty("seamcarver.pictures", "../SeamCarving"));
+        var file = directory.resolve(picture);
+        if (Files.exists(file)) {
+            return new Picture(file.toFile());
+        }
+
+        var size = picture.split("x");
+        return SCUtility.randomPicture(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+    }
+
+    @Override
+    public Carver createOptimized(Picture picture) {
+        return new OptimizedCarver(new SeamCarver(picture));
+    }
+
+    @Override
+    public Carver createUnoptimized(Picture picture) {
+        return new UnoptimizedCarver(new SeamCarverUnoptimized(picture));
+    }
+
+    private static class OptimizedCarver implements Carver {
+
+        private final SeamCarver seamCarver;
+
+        OptimizedCarver(SeamCarver seamCarver) {
+            this.seamCarver = seamCarver;
+        }
+
+        public int width() {
+            return this.seamCarver.width();
+        }
+
+        public int height() {
+            return this.seamCarver.height();
+        }
+
+        public double energy(int x, int y) {
+            return this.seamCarver.energy(x, y);
+        }
+
+        public int[] findVerticalSeam() {
+            return this.seamCarver.findVerticalSeam();
+        }
+
+        public int[] findHorizontalSeam() {
+            return this.seamCarver.findHorizontalSeam();
+        }
+
+        public void removeVerticalSeam(int[] seam) {
+            this.seamCarver.removeVerticalSeam(seam);
+        }
+
+        public void removeHorizontalSeam(int[] seam) {
+            this.seamCarver.removeHorizontalSeam(seam);
+        }
+
+        public void carveTo(int width, int height) {
+            this.seamCarver.carveTo(width, height);
+        }
+    }
+
+    private static class UnoptimizedCarver implements Carver {
+
+        private final SeamCarverUnoptimized seamCarver;
+
+        UnoptimizedCarver(SeamCarverUnoptimized seamCarver) {
+            this.seamCarver = seamCarver;
+        }
+
+        public int width() {
+            return this.seamCarver.width();
+        }
+
+        public int height() {
+            return this.seamCarver.height();
+        }
+
+        public double energy(int x, int y) {
+            return this.seamCarver.energy(x, y);
+        }
+
+        public int[] findVerticalSeam() {
+            return this.seamCarver.findVerticalSeam();
+        }
+
+        public int[] findHorizontalSeam() {
+            return this.seamCarver.findHorizontalSeam();
+        }
+
+        public void removeVerticalSeam(int[] seam) {
+            this.seamCarver.removeVerticalSeam(seam);
+        }
+
+        public void removeHorizontalSeam(int[] seam) {
+            this.seamCarver.removeHorizontalSeam(seam);
+        }
+
+        public void carveTo(int width, int height) {
+            // The unoptimized carver has no carveTo, so seams are removed one by one
+            while (this.seamCarver.width() > width) {
+                this.seamCarver.removeVerticalSeam(this.seamCarver.findVerticalSeam());
+            }
+            while (this.seamCarver.height() > height) {
+                this.seamCarver.removeHorizontalSeam(this.seamCarver.findHorizontalSeam());
+            }
+        }
+    }
+}
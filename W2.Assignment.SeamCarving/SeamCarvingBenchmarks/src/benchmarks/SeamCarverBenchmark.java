@@ -0,0 +1,462 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac -cp algs4.jar:jmh/*:../SeamCarving/src:../SeamCarvingVector/src -processorpath jmh/*
+ *                 SeamCarverBenchmarkCarvers.java benchmarks/SeamCarverBenchmark.java
+ *  Execution:     java --add-modules jdk.incubator.vector benchmarks.SeamCarverBenchmark [JMH options]
+ *
+ *  JMH benchmarks of SeamCarver on the bundled pictures and synthetic
+ *  pictures up to 8K, and of SeamCarverUnoptimized on the small bundled
+ *  pictures only. Benchmarks ending with Unoptimized carve 50x50 with the
+ *  latter; benchmarks ending with Small carve the tiny pictures with both
+ *  carvers in batches of fresh carvers. Pictures are read from the
+ *  directory given by the seamcarver.pictures property, ../SeamCarving
+ *  by default; sizes like 7680x4320 are random pictures.
+ *  The main method adds the GC profiler, so allocation rates are
+ *  reported along with throughput.
+ *
+ *  JMH does not generate benchmarks of the default package, while the
+ *  carvers are in it and cannot be imported; they are created by
+ *  SeamCarverBenchmarkCarvers, which is loaded by name.
+ *
+ *  % java benchmarks.SeamCarverBenchmark -p picture=736x584.jpg findVerticalSeam
+ *
+ *----------------------------------------------------------------*/
+
+package benchmarks;
+
+import edu.princeton.cs.algs4.Picture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules=jdk.incubator.vector"})
+public class SeamCarverBenchmark {
+
+    private static final CarverFactory CARVERS = loadCarvers();
+    private static final int BATCH = 64; // Fresh carvers of a tiny picture carved by a single invocation
+
+    /*
+    Picture shared by all invocations of a trial
+     */
+    public abstract static class Pictures {
+
+        Picture source;
+
+        void read(String picture) {
+            this.source = CARVERS.readPicture(picture);
+        }
+
+        abstract Carver create();
+    }
+
+    @State(Scope.Benchmark)
+    public static class OptimizedPictures extends Pictures {
+
+        @Param({"50x50.png", "736x584.jpg", "1920x1080", "7680x4320"})
+        public String picture;
+
+        @Setup(Level.Trial)
+        public void read() {
+            read(this.picture);
+        }
+
+        @Override
+        Carver create() {
+            return CARVERS.createOptimized(this.source);
+        }
+    }
+
+    /*
+    The unoptimized carver searches every seam from scratch, so a single shrink of a large picture takes minutes;
+    only the small bundled pictures are carved by it, and the parameter is named apart, so -p picture=... does not
+    apply to it
+     */
+    @State(Scope.Benchmark)
+    public static class UnoptimizedPictures extends Pictures {
+
+        @Param({"50x50.png"})
+        public String unoptimizedPicture;
+
+        @Setup(Level.Trial)
+        public void read() {
+            read(this.unoptimizedPicture);
+        }
+
+        @Override
+        Carver create() {
+            return CARVERS.createUnoptimized(this.source);
+        }
+    }
+
+    /*
+    Tiny pictures carved by both carvers; a single operation takes microseconds, so they are carved in batches
+     */
+    @State(Scope.Benchmark)
+    public static class SmallPictures extends Pictures {
+
+        @Param({"6x5.png", "10x10.png"})
+        public String smallPicture;
+
+        @Param({"optimized", "unoptimized"})
+        public String carver;
+
+        @Setup(Level.Trial)
+        public void read() {
+            read(this.smallPicture);
+        }
+
+        @Override
+        Carver create() {
+            return "unoptimized".equals(this.carver)
+                    ? CARVERS.createUnoptimized(this.source)
+                    : CARVERS.createOptimized(this.source);
+        }
+    }
+
+    /*
+    Fresh carver for every invocation, so that no invocation sees energies and seam costs cached by a previous one
+     */
+    public abstract static class Carvers {
+
+        Carver carver;
+
+        @TearDown(Level.Invocation)
+        public void release() {
+            // Two carvers of an 8K picture do not fit into the heap, so the used one is dropped before a new one
+            this.carver = null;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OptimizedCarvers extends Carvers {
+
+        @Setup(Level.Invocation)
+        public void create(OptimizedPictures pictures) {
+            this.carver = pictures.create();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UnoptimizedCarvers extends Carvers {
+
+        @Setup(Level.Invocation)
+        public void create(UnoptimizedPictures pictures) {
+            this.carver = pictures.create();
+        }
+    }
+
+    /*
+    Fresh carver with a vertical seam already found, so that only the removal is measured
+     */
+    public abstract static class CarversWithSeam extends Carvers {
+
+        int[] verticalSeam;
+
+        void create(Pictures pictures) {
+            this.carver = pictures.create();
+            this.verticalSeam = this.carver.findVerticalSeam();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OptimizedCarversWithSeam extends CarversWithSeam {
+
+        @Setup(Level.Invocation)
+        public void create(OptimizedPictures pictures) {
+            create((Pictures) pictures);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UnoptimizedCarversWithSeam extends CarversWithSeam {
+
+        @Setup(Level.Invocation)
+        public void create(UnoptimizedPictures pictures) {
+            create((Pictures) pictures);
+        }
+    }
+
+    /*
+    Batch of fresh carvers of a tiny picture for every invocation, so that timestamps and setup of an invocation
+    are shared by BATCH operations
+     */
+    @State(Scope.Thread)
+    public static class CarverBatch {
+
+        final Carver[] carvers = new Carver[BATCH];
+
+        @Setup(Level.Invocation)
+        public void create(SmallPictures pictures) {
+            for (var i = 0; i < BATCH; i++) {
+                this.carvers[i] = pictures.create();
+            }
+        }
+    }
+
+    /*
+    Batch of fresh carvers of a tiny picture with a vertical seam of each already found
+     */
+    @State(Scope.Thread)
+    public static class CarverBatchWithSeams {
+
+        final Carver[] carvers = new Carver[BATCH];
+        final int[][] verticalSeams = new int[BATCH][];
+
+        @Setup(Level.Invocation)
+        public void create(SmallPictures pictures) {
+            for (var i = 0; i < BATCH; i++) {
+                this.carvers[i] = pictures.create();
+                this.verticalSeams[i] = this.carvers[i].findVerticalSeam();
+            }
+        }
+    }
+
+    /*
+    Pixels are copied into a new carver; neither carver computes energies until they are needed
+     */
+    @Benchmark
+    public Carver construct(OptimizedPictures pictures) {
+        return pictures.create();
+    }
+
+    @Benchmark
+    public Carver constructUnoptimized(UnoptimizedPictures pictures) {
+        return pictures.create();
+    }
+
+    @Benchmark
+    public Carver constructSmall(SmallPictures pictures) {
+        return pictures.create();
+    }
+
+    /*
+    Energies of all pixels of a new carver are read
+     */
+    @Benchmark
+    public double computeEnergies(OptimizedCarvers carvers) {
+        return sumEnergies(carvers.carver);
+    }
+
+    @Benchmark
+    public double computeEnergiesUnoptimized(UnoptimizedCarvers carvers) {
+        return sumEnergies(carvers.carver);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void computeEnergiesSmall(CarverBatch batch, Blackhole blackhole) {
+        for (var carver : batch.carvers) {
+            blackhole.consume(sumEnergies(carver));
+        }
+    }
+
+    @Benchmark
+    public int[] findVerticalSeam(OptimizedCarvers carvers) {
+        return carvers.carver.findVerticalSeam();
+    }
+
+    @Benchmark
+    public int[] findVerticalSeamUnoptimized(UnoptimizedCarvers carvers) {
+        return carvers.carver.findVerticalSeam();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void findVerticalSeamSmall(CarverBatch batch, Blackhole blackhole) {
+        for (var carver : batch.carvers) {
+            blackhole.consume(carver.findVerticalSeam());
+        }
+    }
+
+    @Benchmark
+    public int[] findHorizontalSeam(OptimizedCarvers carvers) {
+        return carvers.carver.findHorizontalSeam();
+    }
+
+    @Benchmark
+    public int[] findHorizontalSeamUnoptimized(UnoptimizedCarvers carvers) {
+        return carvers.carver.findHorizontalSeam();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void findHorizontalSeamSmall(CarverBatch batch, Blackhole blackhole) {
+        for (var carver : batch.carvers) {
+            blackhole.consume(carver.findHorizontalSeam());
+        }
+    }
+
+    @Benchmark
+    public Carver removeVerticalSeam(OptimizedCarversWithSeam carvers) {
+        carvers.carver.removeVerticalSeam(carvers.verticalSeam);
+        return carvers.carver;
+    }
+
+    @Benchmark
+    public Carver removeVerticalSeamUnoptimized(UnoptimizedCarversWithSeam carvers) {
+        carvers.carver.removeVerticalSeam(carvers.verticalSeam);
+        return carvers.carver;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void removeVerticalSeamSmall(CarverBatchWithSeams batch, Blackhole blackhole) {
+        for (var i = 0; i < BATCH; i++) {
+            batch.carvers[i].removeVerticalSeam(batch.verticalSeams[i]);
+            blackhole.consume(batch.carvers[i]);
+        }
+    }
+
+    @Benchmark
+    public Carver alternateSeams(OptimizedCarvers carvers) {
+        return removeAlternateSeams(carvers.carver);
+    }
+
+    @Benchmark
+    public Carver alternateSeamsUnoptimized(UnoptimizedCarvers carvers) {
+        return removeAlternateSeams(carvers.carver);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void alternateSeamsSmall(CarverBatch batch, Blackhole blackhole) {
+        for (var carver : batch.carvers) {
+            blackhole.consume(removeAlternateSeams(carver));
+        }
+    }
+
+    @Benchmark
+    public Carver shrink(OptimizedCarvers carvers) {
+        return shrinkTo90Percent(carvers.carver);
+    }
+
+    @Benchmark
+    public Carver shrinkUnoptimized(UnoptimizedCarvers carvers) {
+        return shrinkTo90Percent(carvers.carver);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void shrinkSmall(CarverBatch batch, Blackhole blackhole) {
+        for (var carver : batch.carvers) {
+            blackhole.consume(shrinkTo90Percent(carver));
+        }
+    }
+
+    private static double sumEnergies(Carver carver) {
+        var sum = 0.0;
+        for (var y = 0; y < carver.height(); y++) {
+            for (var x = 0; x < carver.width(); x++) {
+                sum += carver.energy(x, y);
+            }
+        }
+
+        return sum;
+    }
+
+    /*
+    Vertical and horizontal seams are found and removed in turn, 16 of each or as many as the picture allows
+     */
+    private static Carver removeAlternateSeams(Carver carver) {
+        var rounds = Math.min(16, Math.min(carver.width(), carver.height()) / 2);
+        for (var i = 0; i < rounds; i++) {
+            carver.removeVerticalSeam(carver.findVerticalSeam());
+            carver.removeHorizontalSeam(carver.findHorizontalSeam());
+        }
+
+        return carver;
+    }
+
+    /*
+    The picture is shrunk to 90% of its width and height
+     */
+    private static Carver shrinkTo90Percent(Carver carver) {
+        carver.carveTo(Math.max(carver.width() * 9 / 10, 1), Math.max(carver.height() * 9 / 10, 1));
+        return carver;
+    }
+
+    /*
+    Operations common to both carvers
+     */
+    public interface Carver {
+
+        int width();
+
+        int height();
+
+        double energy(int x, int y);
+
+        int[] findVerticalSeam();
+
+        int[] findHorizontalSeam();
+
+        void removeVerticalSeam(int[] seam);
+
+        void removeHorizontalSeam(int[] seam);
+
+        void carveTo(int width, int height);
+    }
+
+    /*
+    Pictures and carvers of the default package
+     */
+    public interface CarverFactory {
+
+        /*
+        Bundled picture with the given file name or random picture of the given size like 7680x4320
+         */
+        Picture readPicture(String picture);
+
+        Carver createOptimized(Picture picture);
+
+        Carver createUnoptimized(Picture picture);
+    }
+
+    private static CarverFactory loadCarvers() {
+        try {
+            return (CarverFactory) Class.forName("SeamCarverBenchmarkCarvers").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("SeamCarverBenchmarkCarvers is not found", e);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        var commandLine = new CommandLineOptions(args);
+        var builder = new OptionsBuilder().parent(commandLine);
+        // Includes are combined, so benchmarks of this class are the default only if none are given
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(SeamCarverBenchmark.class.getSimpleName());
+        }
+        var options = builder
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
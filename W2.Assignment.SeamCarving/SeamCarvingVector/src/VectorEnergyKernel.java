@@ -0,0 +1,65 @@
+/*----------------------------------------------------------------
+ *  Author:        Pylyp Lebediev
+ *  Written:       18/10/2026
+ *  Last updated:  18/10/2026
+ *
+ *  Compilation:   javac --add-modules jdk.incubator.vector -cp ../../SeamCarving/src VectorEnergyKernel.java
+ *  Execution:     java --add-modules jdk.incubator.vector -cp ../../SeamCarving/src:. SeamCarver
+ *
+ *  Dual-gradient energy kernel computing a whole vector of pixels at a time.
+ *  It is kept apart from the SeamCarving sources, which compile without
+ *  the incubator module; without this class on the class path or without
+ *  --add-modules at run time, the scalar kernel is used.
+ *
+ *----------------------------------------------------------------*/
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorEnergyKernel implements EnergyKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int RED = 16;
+    private static final int GREEN = 8;
+    private static final int BLUE = 0;
+
+    @Override
+    public void computeRow(int[] pixels, int stride, int row, int fromCol, int toCol, int[] squared) {
+        var offset = row * stride;
+        var col = fromCol;
+
+        // Neighbours of a segment are loaded as four shifted vectors of the same length
+        var upperBound = fromCol + SPECIES.loopBound(toCol - fromCol);
+        for (; col < upperBound; col += SPECIES.length()) {
+            var i = offset + col;
+            var nextX = IntVector.fromArray(SPECIES, pixels, i + 1);
+            var prevX = IntVector.fromArray(SPECIES, pixels, i - 1);
+            var nextY = IntVector.fromArray(SPECIES, pixels, i + stride);
+            var prevY = IntVector.fromArray(SPECIES, pixels, i - stride);
+
+            squaredDifference(nextX, prevX)
+                    .add(squaredDifference(nextY, prevY))
+                    .intoArray(squared, col - fromCol);
+        }
+
+        // Pixels which do not fill a whole vector
+        for (; col < toCol; col++) {
+            squared[col - fromCol] = ScalarEnergyKernel.squaredGradient(pixels, offset + col, stride);
+        }
+    }
+
+    private static IntVector squaredDifference(IntVector rgb1, IntVector rgb2) {
+        var red = getColor(rgb1, RED).sub(getColor(rgb2, RED));
+        var green = getColor(rgb1, GREEN).sub(getColor(rgb2, GREEN));
+        var blue = getColor(rgb1, BLUE).sub(getColor(rgb2, BLUE));
+
+        return red.mul(red)
+                .add(green.mul(green))
+                .add(blue.mul(blue));
+    }
+
+    private static IntVector getColor(IntVector rgb, int shift) {
+        return rgb.lanewise(VectorOperators.ASHR, shift).and(0xFF);
+    }
+}